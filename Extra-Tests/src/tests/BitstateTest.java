@@ -0,0 +1,86 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.automata.Automaton;
+import il.ac.bgu.cs.fvm.examples.PetersonProgramGraphBuilder;
+import il.ac.bgu.cs.fvm.ex3.AutomataFactory;
+import il.ac.bgu.cs.fvm.impl.BitstateSet;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.Fingerprints;
+import il.ac.bgu.cs.fvm.impl.ImplicitTransitionSystem;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.util.Pair;
+import il.ac.bgu.cs.fvm.verification.VerificationFailed;
+import il.ac.bgu.cs.fvm.verification.VerificationSucceeded;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class BitstateTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void reachWithRoomToSpareFindsEverything() {
+        ProgramGraph<Pair<String, String>, String> pg = sut.interleave(PetersonProgramGraphBuilder.build(1), PetersonProgramGraphBuilder.build(2));
+        ImplicitTransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> ts =
+                sut.lazyTransitionSystemFromProgramGraph(pg, set(new ParserBasedActDef()), set(new ParserBasedCondDef()));
+        BitstateSet visited = new BitstateSet(1);
+
+        long count = sut.reach(ts, visited);
+
+        assertEquals(0, ts.expandedStateCount());
+        assertEquals(sut.reach(ts).size(), count);
+        assertEquals(count, visited.size());
+        assertTrue(visited.coverage() > 0.999);
+        assertTrue(visited.collisionProbability() < 1e-9);
+    }
+
+    @Test(timeout = 5000)
+    public void verify() {
+        // a counter that stops at 20, "big" from 10 on; one system may reset
+        ImplicitTransitionSystem<Integer, String, String> resets = counter(true);
+        ImplicitTransitionSystem<Integer, String, String> stops = counter(false);
+        Automaton<String, String> aut = new AutomataFactory<>(resets).eventuallyAlwaysAut(a -> !a.contains("big"));
+
+        assertTrue(sut.verifyAnOmegaRegularProperty(resets, aut, new BitstateSet(1)) instanceof VerificationFailed);
+        assertTrue(sut.verifyAnOmegaRegularProperty(stops, aut, new BitstateSet(1)) instanceof VerificationSucceeded);
+    }
+
+    @Test(timeout = 10000)
+    public void estimatesWhatCollisionsCost() {
+        BitstateSet set = new BitstateSet(1);
+        int n = 4_000_000;
+        for (int i = 0; i < n; i++)
+            set.add(Fingerprints.of(i));
+
+        double actual = (double) set.size() / n;
+        assertTrue(actual < 1);
+        assertEquals(actual, set.coverage(), 0.02);
+        assertTrue(set.collisionProbability() > 0.1);
+    }
+
+    private ImplicitTransitionSystem<Integer, String, String> counter(boolean resets) {
+        return ImplicitTransitionSystem.<Integer, String, String>builder()
+                .initialStates(set(0))
+                .successors(i -> i < 20
+                        ? (resets ? set(new Transition<>(i, "inc", i + 1), new Transition<>(i, "reset", 0)) : set(new Transition<>(i, "inc", i + 1)))
+                        : set(new Transition<>(i, resets ? "reset" : "stay", resets ? 0 : i)))
+                .labels(i -> i >= 10 ? set("big") : Collections.emptySet())
+                .atomicPropositions(set("big"))
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.impl.CompactTransitionSystem;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static tests.TSTestUtils.*;
+
+public class CompactTransitionSystemTest {
+
+    private FvmFacade sut = null;
+
+    @Before
+    public void setup() {
+        sut = FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 2000)
+    public void copyKeepsStructure() {
+        TransitionSystem<States, Actions, APs> ts = simpleTransitionSystem();
+        CompactTransitionSystem<States, Actions, APs> compact = CompactTransitionSystem.copyOf(ts);
+
+        assertEquals(ts.getStates(), compact.getStates());
+        assertEquals(ts.getInitialStates(), compact.getInitialStates());
+        assertEquals(ts.getActions(), compact.getActions());
+        assertEquals(ts.getTransitions(), compact.getTransitions());
+        assertEquals(ts.getLabelingFunction(), compact.getLabelingFunction());
+    }
+
+    @Test(timeout = 2000)
+    public void postAndPreMatch() {
+        TransitionSystem<Integer, String, String> ts = makeCircularTsWithReset(5);
+        CompactTransitionSystem<Integer, String, String> compact = CompactTransitionSystem.copyOf(ts);
+
+        for (Integer s : ts.getStates()) {
+            assertEquals(sut.post(ts, s), sut.post(compact, s));
+            assertEquals(sut.pre(ts, s), sut.pre(compact, s));
+            for (String a : ts.getActions()) {
+                assertEquals(sut.post(ts, s, a), sut.post(compact, s, a));
+                assertEquals(sut.pre(ts, s, a), sut.pre(compact, s, a));
+            }
+        }
+        assertEquals(sut.reach(ts), sut.reach(compact));
+    }
+
+    @Test(timeout = 5000)
+    public void neighboursUnderSeveralActionsAreCountedOnce() {
+        /* 0 reaches each of 1..2000 under 5 actions */
+        TransitionSystem<Integer, String, String> ts = sut.createTransitionSystem();
+        ts.addState(0);
+        ts.addInitialState(0);
+        Set<Integer> expected = new HashSet<>();
+        for (int a = 0; a < 5; a++)
+            ts.addAction("a" + a);
+        for (int s = 1; s <= 2000; s++) {
+            ts.addState(s);
+            expected.add(s);
+            for (int a = 0; a < 5; a++)
+                ts.addTransition(new Transition<>(0, "a" + a, s));
+        }
+        CompactTransitionSystem<Integer, String, String> compact = CompactTransitionSystem.copyOf(ts);
+
+        assertEquals(2000, compact.getSuccessors(0).size());
+        assertEquals(expected, sut.post(compact, 0));
+        assertEquals(expected, new HashSet<>(compact.getSuccessors(0)));
+        assertTrue(compact.getSuccessors(0).contains(1234));
+        assertFalse(compact.getSuccessors(0).contains(0));
+        assertEquals(Collections.singleton(0), compact.getPredecessors(7));
+        assertEquals(2000, compact.getSuccessors(0, "a3").size());
+    }
+
+    @Test(timeout = 2000, expected = UnsupportedOperationException.class)
+    public void isFrozen() {
+        CompactTransitionSystem.copyOf(makeLinearTs(3)).addState(4);
+    }
+}
@@ -0,0 +1,97 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CompiledTransitionTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void asynchronousChannelsBufferAndBlock() {
+        ProgramGraph<String, String> producer = sut.createProgramGraph();
+        producer.addLocation("p");
+        producer.addInitialLocation("p");
+        producer.addTransition(new PGTransition<>("p", "size(C) < 2", "C!size(C) + 1", "p"));
+        ProgramGraph<String, String> consumer = sut.createProgramGraph();
+        consumer.addLocation("c");
+        consumer.addInitialLocation("c");
+        consumer.addTransition(new PGTransition<>("c", "", "C?x", "c"));
+
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts =
+                sut.transitionSystemFromChannelSystem(new ChannelSystem<>(Arrays.asList(producer, consumer)));
+
+        for (Transition<Pair<List<String>, Map<String, Object>>, String> t : ts.getTransitions()) {
+            List<?> before = (List<?>) t.getFrom().second.get("C");
+            List<?> after = (List<?>) t.getTo().second.get("C");
+            if (t.getAction().equals("C?x")) {
+                assertFalse(before.isEmpty());
+                assertEquals(before.get(0), t.getTo().second.get("x"));
+                assertEquals(before.subList(1, before.size()), after);
+            } else {
+                assertTrue(before == null || before.size() < 2);
+                assertEquals(after.size(), before == null ? 1 : before.size() + 1);
+            }
+        }
+        Map<String, Object> initial = ts.getInitialStates().iterator().next().second;
+        assertTrue(initial.isEmpty());
+        for (Pair<List<String>, Map<String, Object>> s : ts.getStates())
+            assertTrue(s.second.get("C") == null || ((List<?>) s.second.get("C")).size() <= 2);
+    }
+
+    @Test(timeout = 5000)
+    public void writesToAFullChannelBlock() {
+        ProgramGraph<String, String> producer = sut.createProgramGraph();
+        producer.addLocation("p");
+        producer.addInitialLocation("p");
+        producer.addTransition(new PGTransition<>("p", "", "C!1", "p"));
+
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts = sut.boundedTransitionSystemFromChannelSystem(
+                new ChannelSystem<>(Collections.singletonList(producer)), Collections.singletonMap("C", 2));
+
+        assertEquals(3, ts.getStates().size());
+        assertEquals(2, ts.getTransitions().size());
+        for (Transition<Pair<List<String>, Map<String, Object>>, String> t : ts.getTransitions())
+            assertTrue(((List<?>) t.getTo().second.get("C")).size() <= 2);
+        for (Pair<List<String>, Map<String, Object>> s : ts.getStates())
+            if (s.second.get("C") != null && ((List<?>) s.second.get("C")).size() == 2)
+                assertTrue(sut.post(ts, s).isEmpty());
+    }
+
+    @Test(timeout = 5000)
+    public void skipAndEmptyActionsKeepTheMemory() {
+        ProgramGraph<String, String> pg = sut.createProgramGraph();
+        pg.addLocation("a");
+        pg.addLocation("b");
+        pg.addLocation("c");
+        pg.addInitialLocation("a");
+        pg.addInitalization(Collections.singletonList("x := 3"));
+        pg.addTransition(new PGTransition<>("a", "x == 3", "skip", "b"));
+        pg.addTransition(new PGTransition<>("b", "", "", "c"));
+        pg.addTransition(new PGTransition<>("b", "x != 3", "x := 0", "a"));
+
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts =
+                sut.transitionSystemFromChannelSystem(new ChannelSystem<>(Collections.singletonList(pg)));
+        assertEquals(3, ts.getStates().size());
+        assertEquals(2, ts.getTransitions().size());
+        for (Pair<List<String>, Map<String, Object>> s : ts.getStates())
+            assertEquals(Collections.singletonMap("x", 3), s.second);
+    }
+}
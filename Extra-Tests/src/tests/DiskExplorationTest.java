@@ -0,0 +1,104 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.examples.PetersonProgramGraphBuilder;
+import il.ac.bgu.cs.fvm.impl.DiskExploration;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.ImplicitTransitionSystem;
+import il.ac.bgu.cs.fvm.impl.MappedTransitionSystem;
+import il.ac.bgu.cs.fvm.impl.StateCodec;
+import il.ac.bgu.cs.fvm.impl.StateCodecs;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class DiskExplorationTest {
+
+    @Rule
+    public TemporaryFolder dir = new TemporaryFolder();
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void smallBuffersFindEveryState() {
+        // a grid walk: many paths to each state, so most successors are duplicates
+        DiskExploration<Integer> bfs = new DiskExploration<>(StateCodecs.integer(), dir.getRoot().toPath(), 7);
+
+        long count = bfs.reach(set(0), i -> i % 100 < 99 && i < 9900 ? set(i + 1, i + 100) : i % 100 < 99 ? set(i + 1) : i < 9900 ? set(i + 100) : set());
+
+        assertEquals(10000, count);
+        assertEquals(199, bfs.depth());
+        assertEquals(0, dir.getRoot().list().length);
+    }
+
+    @Test(timeout = 10000)
+    public void wideLevelsAreMergedInSeveralPasses() {
+        // one run per successor: the second level has 5000 runs, the third 5000 runs of 10 states
+        int width = 5000;
+        assertTrue(width > DiskExploration.MAX_FAN_IN * DiskExploration.MAX_FAN_IN);
+        DiskExploration<Integer> bfs = new DiskExploration<>(StateCodecs.integer(), dir.getRoot().toPath(), 1);
+
+        long count = bfs.reach(set(0), i -> {
+            if (i == 0)
+                return IntStream.rangeClosed(1, width).boxed().collect(Collectors.toList());
+            return i <= width ? set(width + 1 + i % 10) : set();
+        });
+
+        assertEquals(1 + width + 10, count);
+        assertEquals(3, bfs.depth());
+        assertEquals(0, dir.getRoot().list().length);
+    }
+
+    @Test(timeout = 5000)
+    public void reachMatchesInMemory() {
+        ImplicitTransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> ts = lazyPeterson();
+
+        assertEquals(sut.reach(ts).size(), sut.reach(ts, codec(), dir.getRoot().toPath()));
+    }
+
+    @Test(timeout = 5000)
+    public void materializeMatchesEager() throws Exception {
+        ImplicitTransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> lazy = lazyPeterson();
+        TransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> eager = sut.transitionSystemFromProgramGraph(
+                sut.interleave(PetersonProgramGraphBuilder.build(1), PetersonProgramGraphBuilder.build(2)),
+                set(new ParserBasedActDef()), set(new ParserBasedCondDef()));
+
+        try (MappedTransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> mapped =
+                     sut.materialize(lazy, dir.getRoot().toPath(), codec())) {
+            assertEquals(0, lazy.expandedStateCount());
+            assertEquals(eager.getStates(), mapped.getStates());
+            assertEquals(eager.getInitialStates(), mapped.getInitialStates());
+            assertEquals(eager.getTransitions(), mapped.getTransitions());
+            assertEquals(eager.getLabelingFunction(), mapped.getLabelingFunction());
+        }
+        assertEquals(Arrays.asList(), Arrays.asList(dir.getRoot().list()));
+    }
+
+    private ImplicitTransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> lazyPeterson() {
+        ProgramGraph<Pair<String, String>, String> pg = sut.interleave(PetersonProgramGraphBuilder.build(1), PetersonProgramGraphBuilder.build(2));
+        return sut.lazyTransitionSystemFromProgramGraph(pg, set(new ParserBasedActDef()), set(new ParserBasedCondDef()));
+    }
+
+    private StateCodec<Pair<Pair<String, String>, Map<String, Object>>> codec() {
+        return StateCodecs.pair(StateCodecs.pair(StateCodecs.string(), StateCodecs.string()), StateCodecs.memory());
+    }
+}
@@ -0,0 +1,60 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.examples.AlternatingBitProtocolBuilder;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class ExplorationTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 10000)
+    public void parallelReachMatchesSerial() {
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts = sut.transitionSystemFromChannelSystem(AlternatingBitProtocolBuilder.build());
+        Set<Pair<List<String>, Map<String, Object>>> serial = sut.reach(ts);
+        sut.setParallel(true);
+        assertEquals(serial, sut.reach(ts));
+        assertEquals(ts.getStates(), serial);
+    }
+
+    @Test(timeout = 10000)
+    public void parallelInterleaveMatchesSerial() {
+        TransitionSystem<Integer, String, String> ts1 = TSTestUtils.addTagsByStateNames(TSTestUtils.makeCircularTsWithReset(40));
+        TransitionSystem<Integer, String, String> ts2 = TSTestUtils.addTagsByStateNames(TSTestUtils.makeCircularTsWithReset(50));
+        List<TransitionSystem<Integer, String, String>> systems = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            systems.add(TSTestUtils.makeCircularTsWithReset(4));
+        TransitionSystem<Pair<Integer, Integer>, String, String> pairs = sut.interleave(ts1, ts2, set("reset"));
+        TransitionSystem<List<Integer>, String, String> vectors = sut.interleave(systems, set("reset"));
+
+        sut.setParallel(true);
+        assertSameSystem(pairs, sut.interleave(ts1, ts2, set("reset")));
+        assertSameSystem(vectors, sut.interleave(systems, set("reset")));
+    }
+
+    private static <S> void assertSameSystem(TransitionSystem<S, String, String> expected, TransitionSystem<S, String, String> actual) {
+        assertEquals(expected.getStates(), actual.getStates());
+        assertEquals(expected.getInitialStates(), actual.getInitialStates());
+        assertEquals(expected.getActions(), actual.getActions());
+        assertEquals(expected.getTransitions(), actual.getTransitions());
+        assertEquals(expected.getAtomicPropositions(), actual.getAtomicPropositions());
+        assertEquals(expected.getLabelingFunction(), actual.getLabelingFunction());
+    }
+}
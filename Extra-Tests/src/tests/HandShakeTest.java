@@ -0,0 +1,102 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HandShakeTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void theSameProgramGraphTwiceSynchronizesWithItself() {
+        ProgramGraph<String, String> pg = sut.createProgramGraph();
+        pg.addLocation("start");
+        pg.addLocation("sent");
+        pg.addLocation("received");
+        pg.addInitialLocation("start");
+        pg.addInitalization(Arrays.asList("x := 7", "y := 0"));
+        pg.addTransition(new PGTransition<>("start", "", "_C!x + 1", "sent"));
+        pg.addTransition(new PGTransition<>("start", "", "_C?y", "received"));
+
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts =
+                sut.transitionSystemFromChannelSystem(new ChannelSystem<>(Arrays.asList(pg, pg)));
+
+        Map<String, Object> after = new HashMap<>();
+        after.put("x", 7);
+        after.put("y", 8);
+        Set<Pair<List<String>, Map<String, Object>>> expected = new HashSet<>();
+        expected.add(new Pair<>(Arrays.asList("sent", "received"), after));
+        expected.add(new Pair<>(Arrays.asList("received", "sent"), after));
+
+        Set<Pair<List<String>, Map<String, Object>>> reached = new HashSet<>();
+        Set<String> actions = new HashSet<>();
+        for (Transition<Pair<List<String>, Map<String, Object>>, String> t : ts.getTransitions()) {
+            reached.add(t.getTo());
+            actions.add(t.getAction());
+        }
+        assertEquals(expected, reached);
+        assertEquals(new HashSet<>(Arrays.asList("_C!x + 1|_C?y", "_C?y|_C!x + 1")), actions);
+    }
+
+    @Test(timeout = 5000)
+    public void partnersMustBeEnabled() {
+        ProgramGraph<String, String> writer = sut.createProgramGraph();
+        writer.addLocation("w");
+        writer.addLocation("done");
+        writer.addInitialLocation("w");
+        writer.addTransition(new PGTransition<>("w", "false", "_C!", "done"));
+        ProgramGraph<String, String> reader = sut.createProgramGraph();
+        reader.addLocation("r");
+        reader.addLocation("done");
+        reader.addInitialLocation("r");
+        reader.addTransition(new PGTransition<>("r", "", "_C?", "done"));
+
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts =
+                sut.transitionSystemFromChannelSystem(new ChannelSystem<>(Arrays.asList(writer, reader)));
+        assertTrue(ts.getTransitions().isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void manyProcessesOnSeparateChannels() {
+        List<ProgramGraph<String, String>> pgs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            pgs.add(oneShot("_C" + i + "!" + i));
+            pgs.add(oneShot("_C" + i + "?v" + i));
+        }
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts =
+                sut.transitionSystemFromChannelSystem(new ChannelSystem<>(pgs));
+
+        /* each of the six pairs has met or not */
+        assertEquals(64, ts.getStates().size());
+        for (Pair<List<String>, Map<String, Object>> s : ts.getStates())
+            if (s.first.stream().allMatch("done"::equals))
+                for (int i = 0; i < 6; i++)
+                    assertEquals(i, s.second.get("v" + i));
+    }
+
+    private ProgramGraph<String, String> oneShot(String action) {
+        ProgramGraph<String, String> pg = sut.createProgramGraph();
+        pg.addLocation("ready");
+        pg.addLocation("done");
+        pg.addInitialLocation("ready");
+        pg.addTransition(new PGTransition<>("ready", "", action, "done"));
+        return pg;
+    }
+}
@@ -0,0 +1,59 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.examples.AlternatingBitProtocolBuilder;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.HashCompactSet;
+import il.ac.bgu.cs.fvm.impl.ImplicitTransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HashCompactSetTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 2000)
+    public void setSemantics() {
+        HashCompactSet set = new HashCompactSet(4);
+        for (long f = -1000; f <= 1000; f++)
+            assertTrue(set.add(f * 0x9E3779B97F4A7C15L));
+        for (long f = -1000; f <= 1000; f++) {
+            assertFalse(set.add(f * 0x9E3779B97F4A7C15L));
+            assertTrue(set.contains(f * 0x9E3779B97F4A7C15L));
+        }
+        assertFalse(set.contains(1));
+        assertEquals(2001, set.size());
+    }
+
+    @Test(timeout = 5000)
+    public void reachMatchesExact() {
+        ImplicitTransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts =
+                sut.lazyTransitionSystemFromChannelSystem(AlternatingBitProtocolBuilder.build());
+        HashCompactSet visited = new HashCompactSet();
+
+        long count = sut.reach(ts, visited);
+
+        assertEquals(0, ts.expandedStateCount());
+        assertEquals(sut.reach(ts).size(), count);
+        assertTrue(visited.collisionProbability() < 1e-12);
+    }
+
+    @Test
+    public void collisionProbability() {
+        assertEquals(0, HashCompactSet.collisionProbability(1), 0);
+        assertEquals(Math.pow(2, -64), HashCompactSet.collisionProbability(2), 1e-30);
+        // a billion states: still about one in 37
+        assertEquals(1 / 37.0, HashCompactSet.collisionProbability(1_000_000_000L), 1e-3);
+    }
+}
@@ -0,0 +1,84 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.automata.Automaton;
+import il.ac.bgu.cs.fvm.examples.PetersonProgramGraphBuilder;
+import il.ac.bgu.cs.fvm.ex3.AutomataFactory;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.ImplicitTransitionSystem;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import il.ac.bgu.cs.fvm.verification.VerificationFailed;
+import il.ac.bgu.cs.fvm.verification.VerificationResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class ImplicitTransitionSystemTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void lazyMatchesEager() {
+        ProgramGraph<Pair<String, String>, String> pg = sut.interleave(PetersonProgramGraphBuilder.build(1), PetersonProgramGraphBuilder.build(2));
+        TransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> eager =
+                sut.transitionSystemFromProgramGraph(pg, set(new ParserBasedActDef()), set(new ParserBasedCondDef()));
+        ImplicitTransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> lazy =
+                sut.lazyTransitionSystemFromProgramGraph(pg, set(new ParserBasedActDef()), set(new ParserBasedCondDef()));
+
+        assertEquals(eager.getInitialStates(), lazy.getInitialStates());
+        assertEquals(0, lazy.expandedStateCount());
+        assertEquals(sut.reach(eager), sut.reach(lazy));
+        assertEquals(eager.getStates(), lazy.getStates());
+        assertEquals(eager.getActions(), lazy.getActions());
+        assertEquals(eager.getTransitions(), lazy.getTransitions());
+        assertEquals(eager.getLabelingFunction(), lazy.getLabelingFunction());
+    }
+
+    @Test(timeout = 2000)
+    public void violationFoundWithoutFullExploration() {
+        // an unbounded counter that may reset at any point; "big" from 10 on
+        ImplicitTransitionSystem<Integer, String, String> ts = ImplicitTransitionSystem.<Integer, String, String>builder()
+                .initialStates(set(0))
+                .successors(i -> set(new Transition<>(i, "inc", i + 1), new Transition<>(i, "reset", 0)))
+                .labels(i -> i >= 10 ? set("big") : Collections.emptySet())
+                .atomicPropositions(set("big"))
+                .build();
+
+        Automaton<String, String> aut = new AutomataFactory<>(ts).eventuallyAlwaysAut(a -> !a.contains("big"));
+        VerificationResult<Integer> vr = sut.verifyAnOmegaRegularProperty(ts, aut);
+
+        assertTrue(vr instanceof VerificationFailed);
+        assertTrue(ts.expandedStateCount() < 100);
+    }
+
+    @Test(timeout = 5000)
+    public void lazyInterleaveMatchesEager() {
+        TransitionSystem<Integer, String, String> ts1 = TSTestUtils.addTagsByStateNames(TSTestUtils.makeCircularTsWithReset(5));
+        TransitionSystem<Integer, String, String> ts2 = TSTestUtils.addTagsByStateNames(TSTestUtils.makeCircularTsWithReset(7));
+        TransitionSystem<Pair<Integer, Integer>, String, String> eager = sut.interleave(ts1, ts2, set("reset"));
+        ImplicitTransitionSystem<Pair<Integer, Integer>, String, String> lazy = sut.lazyInterleave(ts1, ts2, set("reset"));
+
+        assertEquals(sut.reach(eager), sut.reach(lazy));
+        assertTrue(lazy.expandedStateCount() > 0);
+        assertEquals(eager.getStates(), lazy.getStates());
+        assertEquals(eager.getActions(), lazy.getActions());
+        assertEquals(eager.getAtomicPropositions(), lazy.getAtomicPropositions());
+        assertEquals(eager.getTransitions(), lazy.getTransitions());
+        assertEquals(eager.getLabelingFunction(), lazy.getLabelingFunction());
+    }
+}
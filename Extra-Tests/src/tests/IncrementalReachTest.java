@@ -0,0 +1,101 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.IncrementalReach;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IncrementalReachTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void randomEditsMatchReach() {
+        Random random = new Random(7);
+        TransitionSystem<Integer, String, String> ts = sut.createTransitionSystem();
+        for (int i = 0; i < 40; i++)
+            ts.addState(i);
+        ts.addAllActions(new String[]{"a", "b"});
+        ts.addInitialState(0);
+        IncrementalReach<Integer, String> reach = sut.incrementalReach(ts);
+
+        List<Transition<Integer, String>> added = new ArrayList<>();
+        for (int step = 0; step < 2000; step++) {
+            int edit = random.nextInt(10);
+            if (edit < 5) {
+                Transition<Integer, String> t = new Transition<>(random.nextInt(40), random.nextBoolean() ? "a" : "b", random.nextInt(40));
+                ts.addTransition(t);
+                added.add(t);
+            } else if (edit < 8 && !added.isEmpty()) {
+                ts.removeTransition(added.remove(random.nextInt(added.size())));
+            } else if (edit == 8) {
+                ts.addInitialState(random.nextInt(40));
+            } else {
+                ts.removeInitialState(random.nextInt(40));
+            }
+            assertEquals(sut.reach(ts), reach.reachable());
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void distancesFollowEdits() {
+        TransitionSystem<Integer, String, String> ts = sut.createTransitionSystem();
+        for (int i = 0; i < 4; i++)
+            ts.addState(i);
+        ts.addAction("a");
+        ts.addInitialState(0);
+        ts.addTransition(new Transition<>(0, "a", 1));
+        ts.addTransition(new Transition<>(1, "a", 2));
+        ts.addTransition(new Transition<>(2, "a", 3));
+        IncrementalReach<Integer, String> reach = sut.incrementalReach(ts);
+        assertEquals(3, reach.distance(3));
+
+        ts.addTransition(new Transition<>(0, "a", 3));
+        assertEquals(1, reach.distance(3));
+        ts.removeTransition(new Transition<>(0, "a", 3));
+        assertEquals(3, reach.distance(3));
+        ts.removeTransition(new Transition<>(1, "a", 2));
+        assertEquals(2, reach.reachableCount());
+        assertEquals(-1, reach.distance(3));
+
+        reach.close();
+        ts.addTransition(new Transition<>(1, "a", 2));
+        assertFalse(reach.isReachable(2));
+    }
+
+    @Test(timeout = 5000)
+    public void workIsProportionalToTheChange() {
+        // a long chain with a short branch hanging off its start
+        TransitionSystem<Integer, String, String> ts = sut.createTransitionSystem();
+        for (int i = 0; i < 10003; i++)
+            ts.addState(i);
+        ts.addAction("a");
+        ts.addInitialState(0);
+        for (int i = 0; i < 9999; i++)
+            ts.addTransition(new Transition<>(i, "a", i + 1));
+        IncrementalReach<Integer, String> reach = sut.incrementalReach(ts);
+        long before = reach.statesVisited();
+
+        ts.addTransition(new Transition<>(0, "a", 10000));
+        ts.addTransition(new Transition<>(10000, "a", 10001));
+        ts.addTransition(new Transition<>(10001, "a", 10002));
+        ts.removeTransition(new Transition<>(10000, "a", 10001));
+
+        assertEquals(10001, reach.reachableCount());
+        assertTrue(reach.statesVisited() - before < 10);
+    }
+}
@@ -0,0 +1,52 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.impl.CompiledActDef;
+import il.ac.bgu.cs.fvm.impl.IntQueue;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class IntQueueTest {
+
+    @Test(timeout = 2000)
+    public void fifoLikeAVector() {
+        IntQueue q = IntQueue.empty().enqueue(1).enqueue(2).enqueue(3);
+        Vector<Integer> v = new Vector<>(Arrays.asList(1, 2, 3));
+        assertEquals(v, q);
+        assertEquals(q, v);
+        assertEquals(v.hashCode(), q.hashCode());
+        assertEquals(v.toString(), q.toString());
+
+        IntQueue rest = q.dequeue();
+        assertEquals(1, q.peek());
+        assertEquals(Arrays.asList(2, 3), rest);
+        assertEquals(Arrays.asList(2, 3).hashCode(), rest.hashCode());
+        assertEquals(Arrays.asList(2, 3, 4), rest.enqueue(4));
+        assertEquals(Arrays.asList(1, 2, 3), q);
+        assertEquals(IntQueue.of(Arrays.asList(2, 3)), rest);
+        assertTrue(rest.dequeue().dequeue().isEmpty());
+    }
+
+    @Test(timeout = 2000)
+    public void boundedQueuesRefuseWrites() {
+        IntQueue q = IntQueue.empty(1).enqueue(7);
+        assertTrue(q.isFull());
+        assertFalse(q.dequeue().isFull());
+        try {
+            q.enqueue(8);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        // a write to a full channel is not enabled
+        Map<String, Object> memory = new HashMap<>();
+        memory.put("C", q);
+        CompiledActDef compiled = new CompiledActDef();
+        assertNull(compiled.effect(memory, "C ! 1"));
+        Map<String, Object> read = compiled.effect(memory, "C ? x");
+        assertEquals(7, read.get("x"));
+        assertEquals(Arrays.asList(1), compiled.effect(read, "C ! 1").get("C"));
+    }
+}
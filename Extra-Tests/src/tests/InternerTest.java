@@ -0,0 +1,57 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.examples.AlternatingBitProtocolBuilder;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.Interner;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class InternerTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 2000)
+    public void equalValuesShareOneInstance() {
+        Interner<List<Integer>> interner = new Interner<>(l -> Collections.unmodifiableList(new ArrayList<>(l)));
+        List<Integer> first = interner.intern(new LinkedList<>(Arrays.asList(1, 2)));
+        assertSame(first, interner.intern(Arrays.asList(1, 2)));
+        assertEquals(Arrays.asList(1, 2), first);
+        assertNotSame(first, interner.intern(Arrays.asList(2, 1)));
+
+        assertEquals(0, interner.id(Arrays.asList(1, 2)));
+        assertEquals(1, interner.id(Arrays.asList(2, 1)));
+        assertEquals(2, interner.id(Collections.emptyList()));
+        assertSame(first, interner.get(0));
+        assertEquals(3, interner.size());
+        assertNull(interner.intern(null));
+    }
+
+    @Test(timeout = 10000)
+    public void channelSystemStatesShareTheirComponents() {
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts = sut.transitionSystemFromChannelSystem(AlternatingBitProtocolBuilder.build());
+        Set<Map<String, Object>> memories = new HashSet<>();
+        Set<List<String>> locations = new HashSet<>();
+        Map<Object, Boolean> instances = new IdentityHashMap<>();
+        for (Pair<List<String>, Map<String, Object>> s : ts.getStates()) {
+            memories.add(s.second);
+            locations.add(s.first);
+            instances.put(s.second, true);
+            instances.put(s.first, true);
+        }
+
+        assertTrue(memories.size() < ts.getStates().size());
+        assertEquals(memories.size() + locations.size(), instances.size());
+    }
+}
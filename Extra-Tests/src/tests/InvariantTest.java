@@ -0,0 +1,75 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.examples.PetersonProgramGraphBuilder;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.ImplicitTransitionSystem;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import il.ac.bgu.cs.fvm.verification.VerificationFailed;
+import il.ac.bgu.cs.fvm.verification.VerificationResult;
+import il.ac.bgu.cs.fvm.verification.VerificationSucceeded;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class InvariantTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void peterson() {
+        ProgramGraph<Pair<String, String>, String> pg = sut.interleave(PetersonProgramGraphBuilder.build(1), PetersonProgramGraphBuilder.build(2));
+        TransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> ts =
+                sut.transitionSystemFromProgramGraph(pg, set(new ParserBasedActDef()), set(new ParserBasedCondDef()));
+        for (Pair<Pair<String, String>, Map<String, Object>> s : ts.getStates()) {
+            ts.addAtomicProposition(s.first.first);
+            ts.addAtomicProposition(s.first.second);
+            ts.addToLabel(s, s.first.first);
+            ts.addToLabel(s, s.first.second);
+        }
+
+        assertTrue(sut.verifyInvariant(ts, l -> !(l.contains("crit1") && l.contains("crit2"))) instanceof VerificationSucceeded);
+
+        VerificationResult<Pair<Pair<String, String>, Map<String, Object>>> vr = sut.verifyInvariant(ts, l -> !l.contains("crit1"));
+        assertTrue(vr instanceof VerificationFailed);
+        List<Pair<Pair<String, String>, Map<String, Object>>> prefix = ((VerificationFailed<Pair<Pair<String, String>, Map<String, Object>>>) vr).getPrefix();
+        assertEquals(3, prefix.size());
+        assertTrue(ts.getInitialStates().contains(prefix.get(0)));
+        assertEquals("crit1", prefix.get(2).first.first);
+        for (int i = 0; i + 1 < prefix.size(); i++)
+            assertTrue(sut.post(ts, prefix.get(i)).contains(prefix.get(i + 1)));
+        assertTrue(((VerificationFailed<?>) vr).getCycle().isEmpty());
+    }
+
+    @Test(timeout = 2000)
+    public void stopsAtTheFirstViolation() {
+        // an unbounded counter that may reset at any point
+        ImplicitTransitionSystem<Integer, String, String> ts = ImplicitTransitionSystem.<Integer, String, String>builder()
+                .initialStates(set(0))
+                .successors(i -> set(new Transition<>(i, "inc", i + 1), new Transition<>(i, "reset", 0)))
+                .labels(i -> i >= 5 ? set("big") : Collections.emptySet())
+                .atomicPropositions(set("big"))
+                .build();
+
+        VerificationResult<Integer> vr = sut.verifyInvariant(ts, l -> !l.contains("big"));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), ((VerificationFailed<Integer>) vr).getPrefix());
+    }
+}
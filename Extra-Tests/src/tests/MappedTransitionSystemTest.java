@@ -0,0 +1,107 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.automata.Automaton;
+import il.ac.bgu.cs.fvm.examples.PetersonProgramGraphBuilder;
+import il.ac.bgu.cs.fvm.ex3.AutomataFactory;
+import il.ac.bgu.cs.fvm.impl.MappedTransitionSystem;
+import il.ac.bgu.cs.fvm.impl.StateCodecs;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import il.ac.bgu.cs.fvm.verification.VerificationFailed;
+import il.ac.bgu.cs.fvm.verification.VerificationResult;
+import il.ac.bgu.cs.fvm.verification.VerificationSucceeded;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+import static tests.TSTestUtils.*;
+
+public class MappedTransitionSystemTest {
+
+    @Rule
+    public TemporaryFolder dir = new TemporaryFolder();
+
+    private FvmFacade sut = null;
+
+    @Before
+    public void setup() {
+        sut = FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 2000)
+    public void copyKeepsStructure() throws Exception {
+        TransitionSystem<Integer, String, String> ts = makeCircularTsWithReset(50);
+        try (MappedTransitionSystem<Integer, String, String> mapped = MappedTransitionSystem.copyOf(ts, dir.getRoot().toPath(), StateCodecs.integer())) {
+            assertEquals(ts.getStates(), mapped.getStates());
+            assertEquals(ts.getInitialStates(), mapped.getInitialStates());
+            assertEquals(ts.getTransitions(), mapped.getTransitions());
+            assertEquals(ts.getLabelingFunction(), mapped.getLabelingFunction());
+            assertEquals(sut.reach(ts), sut.reach(mapped));
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void counterExample() throws Exception {
+        TransitionSystem<Integer, String, String> ts = makeCircularTsWithReset(6);
+        ts.addAtomicProposition("small");
+        for (int i = 1; i <= 3; i++)
+            ts.addToLabel(i, "small");
+        try (MappedTransitionSystem<Integer, String, String> mapped = MappedTransitionSystem.copyOf(ts, dir.getRoot().toPath(), StateCodecs.integer())) {
+            Automaton<String, String> aut = new AutomataFactory<>(ts).eventuallyAlwaysAut(a -> a.contains("small"));
+            VerificationResult<Integer> vr = sut.verifyAnOmegaRegularProperty(mapped, aut);
+            assertTrue(vr instanceof VerificationFailed);
+            VerificationFailed<Integer> failed = (VerificationFailed<Integer>) vr;
+            assertLasso(ts, failed.getPrefix(), failed.getCycle());
+            failed.getCycle().forEach(s -> assertTrue(ts.getLabel(s).contains("small")));
+        }
+    }
+
+    @Test(timeout = 2000)
+    public void systemsShareAWorkingDirectory() throws Exception {
+        TransitionSystem<Integer, String, String> small = makeCircularTsWithReset(5);
+        TransitionSystem<Integer, String, String> large = makeCircularTsWithReset(40);
+        try (MappedTransitionSystem<Integer, String, String> first = MappedTransitionSystem.copyOf(small, dir.getRoot().toPath(), StateCodecs.integer());
+             MappedTransitionSystem<Integer, String, String> second = MappedTransitionSystem.copyOf(large, dir.getRoot().toPath(), StateCodecs.integer())) {
+            assertEquals(small.getStates(), first.getStates());
+            assertEquals(small.getTransitions(), first.getTransitions());
+            assertEquals(large.getStates(), second.getStates());
+            assertEquals(large.getTransitions(), second.getTransitions());
+        }
+        assertArrayEquals(new String[0], dir.getRoot().list());
+    }
+
+    private <S> void assertLasso(TransitionSystem<S, ?, ?> ts, List<S> prefix, List<S> cycle) {
+        assertFalse(prefix.isEmpty());
+        assertFalse(cycle.isEmpty());
+        assertTrue(ts.getInitialStates().contains(prefix.get(0)));
+        List<S> path = new ArrayList<>(prefix);
+        path.addAll(cycle);
+        path.add(cycle.get(0));
+        for (int i = 1; i < path.size(); i++)
+            assertTrue(sut.post(ts, path.get(i - 1)).contains(path.get(i)));
+    }
+
+    @Test(timeout = 5000)
+    public void peterson() throws Exception {
+        ProgramGraph<Pair<String, String>, String> pg = sut.interleave(PetersonProgramGraphBuilder.build(1), PetersonProgramGraphBuilder.build(2));
+        TransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> ts =
+                sut.transitionSystemFromProgramGraph(pg, set(new ParserBasedActDef()), set(new ParserBasedCondDef()));
+        try (MappedTransitionSystem<Pair<Pair<String, String>, Map<String, Object>>, String, String> mapped = MappedTransitionSystem.copyOf(ts,
+                dir.getRoot().toPath(), StateCodecs.pair(StateCodecs.pair(StateCodecs.string(), StateCodecs.string()), StateCodecs.memory()))) {
+            assertEquals(ts.getStates(), mapped.getStates());
+            Automaton<String, String> aut = new AutomataFactory<>(ts).eventuallyPhiAut(a -> a.contains("crit1") && a.contains("crit2"));
+            assertTrue(sut.verifyAnOmegaRegularProperty(mapped, aut) instanceof VerificationSucceeded);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.examples.AlternatingBitProtocolBuilder;
+import il.ac.bgu.cs.fvm.examples.CollatzProgramGraphBuilder;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.IntQueue;
+import il.ac.bgu.cs.fvm.impl.MemoryState;
+import il.ac.bgu.cs.fvm.impl.VariableLayout;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class MemoryStateTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 2000)
+    public void behavesLikeAHashMap() {
+        VariableLayout layout = new VariableLayout();
+        layout.slot("unused");
+        Map<String, Object> memory = new HashMap<>();
+        memory.put("x", 3);
+        memory.put("C", new Vector<>(Arrays.asList(1, 2)));
+        memory.put("D", new Vector<>());
+        memory.put("s", "text");
+        MemoryState state = MemoryState.of(layout, memory);
+
+        assertEquals(memory, state);
+        assertEquals(state, memory);
+        assertEquals(memory.hashCode(), state.hashCode());
+        assertEquals(memory.entrySet(), state.entrySet());
+        assertEquals(3, state.get("x"));
+        assertEquals(Arrays.asList(1, 2), state.get("C"));
+        assertTrue(state.get("D") instanceof IntQueue);
+        assertNull(state.get("unused"));
+        assertFalse(state.containsKey("unused"));
+        assertEquals(state, MemoryState.of(layout, new HashMap<>(memory)));
+
+        memory.put("x", 4);
+        assertNotEquals(memory, state);
+        assertNotEquals(MemoryState.of(layout, memory), state);
+    }
+
+    @Test(timeout = 2000, expected = UnsupportedOperationException.class)
+    public void isImmutable() {
+        MemoryState.of(new VariableLayout(), Collections.singletonMap("x", 1)).put("x", 2);
+    }
+
+    @Test(timeout = 10000)
+    public void programGraphAndChannelSystemMemories() {
+        TransitionSystem<Pair<String, Map<String, Object>>, String, String> collatz =
+                sut.transitionSystemFromProgramGraph(CollatzProgramGraphBuilder.build(), set(new ParserBasedActDef()), set(new ParserBasedCondDef()));
+        Map<String, Object> six = new HashMap<>();
+        six.put("x", 6);
+        assertEquals(set(new Pair<>("running", six)), collatz.getInitialStates());
+        for (Pair<String, Map<String, Object>> s : collatz.getStates()) {
+            assertTrue(s.second instanceof MemoryState);
+            assertEquals(set(s.first, "x = " + s.second.get("x")), collatz.getLabel(s));
+        }
+
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> abp = sut.transitionSystemFromChannelSystem(AlternatingBitProtocolBuilder.build());
+        for (Pair<List<String>, Map<String, Object>> s : abp.getInitialStates())
+            assertTrue(s.second instanceof MemoryState);
+    }
+}
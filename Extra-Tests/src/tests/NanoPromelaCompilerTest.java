@@ -0,0 +1,112 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.examples.CollatzProgramGraphBuilder;
+import il.ac.bgu.cs.fvm.examples.PetersonProgramGraphBuilder;
+import il.ac.bgu.cs.fvm.impl.*;
+import il.ac.bgu.cs.fvm.programgraph.*;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class NanoPromelaCompilerTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void conditionsMatchTheEvaluator() {
+        List<String> conditions = Arrays.asList(
+                "x % 3 == 1", "-x + y * 2 > 4", "(x ^ y) != 0", "!(x <= y) || z == 0", "x / (y + 1) >= 1 && !false",
+                "size(C) == 2", "size(D) < 1", "true && (x - -y) == x + y");
+        ParserBasedCondDef reference = new ParserBasedCondDef();
+        CompiledCondDef compiled = new CompiledCondDef();
+        for (Map<String, Object> eval : memories())
+            for (String c : conditions)
+                assertEquals(c + " at " + eval, reference.evaluate(eval, c), compiled.evaluate(eval, c));
+    }
+
+    @Test(timeout = 5000)
+    public void actionsMatchTheEvaluator() {
+        List<String> actions = Arrays.asList(
+                "x := x % 3 + y", "z := 4", "skip", "atomic {x := y; y := x}", "C ! x * 2", "C ? z", "D ? z", "D ! 1",
+                "if :: true -> skip fi", "");
+        ParserBasedActDef reference = new ParserBasedActDef();
+        CompiledActDef compiled = new CompiledActDef();
+        for (Map<String, Object> eval : memories())
+            for (String a : actions) {
+                assertEquals(a, reference.isMatchingAction(a), compiled.isMatchingAction(a));
+                assertEquals(a + " at " + eval, reference.effect(eval, a), compiled.effect(eval, a));
+            }
+    }
+
+    @Test(timeout = 2000)
+    public void effectsLeaveTheirInputsUnchanged() {
+        CompiledActDef compiled = new CompiledActDef();
+        Map<String, Object> m0 = compiled.effect(new HashMap<>(), "atomic {x := 1; y := 2}");
+        Map<String, Object> m1 = compiled.effect(m0, "C ! x");
+        Map<String, Object> m2 = compiled.effect(m1, "x := 5");
+        Map<String, Object> m3 = compiled.effect(m1, "D ! 7");
+        Map<String, Object> m4 = compiled.effect(m3, "C ? z");
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("x", 1);
+        expected.put("y", 2);
+        assertEquals(expected, m0);
+        expected.put("C", Arrays.asList(1));
+        assertEquals(expected, m1);
+        assertEquals(5, m2.get("x"));
+        assertEquals(Arrays.asList(1), m2.get("C"));
+        expected.put("D", Arrays.asList(7));
+        assertEquals(expected, m3);
+        assertEquals(Collections.emptyList(), m4.get("C"));
+        assertEquals(1, m4.get("z"));
+        assertEquals(Arrays.asList(7), m4.get("D"));
+        assertNotEquals(m2, m1);
+        assertEquals(m1, compiled.effect(m2, "x := 1"));
+        assertEquals(m1.hashCode(), compiled.effect(m2, "x := 1").hashCode());
+    }
+
+    @Test(timeout = 10000)
+    public void programGraphsMatchTheParserBasedDefinitions() {
+        ProgramGraph<Pair<String, String>, String> peterson = sut.interleave(PetersonProgramGraphBuilder.build(1), PetersonProgramGraphBuilder.build(2));
+        assertEquals(transitionSystem(peterson, new ParserBasedActDef(), new ParserBasedCondDef()),
+                transitionSystem(peterson, new CompiledActDef(), new CompiledCondDef()));
+
+        ProgramGraph<String, String> collatz = CollatzProgramGraphBuilder.build();
+        VariableLayout layout = new VariableLayout();
+        assertEquals(transitionSystem(collatz, new ParserBasedActDef(), new ParserBasedCondDef()),
+                transitionSystem(collatz, new CompiledActDef(layout), new CompiledCondDef(layout)));
+        assertEquals(1, layout.size());
+    }
+
+    private <L> List<Object> transitionSystem(ProgramGraph<L, String> pg, ActionDef ad, ConditionDef cd) {
+        TransitionSystem<Pair<L, Map<String, Object>>, String, String> ts = sut.transitionSystemFromProgramGraph(pg, set(ad), set(cd));
+        return Arrays.asList(ts.getStates(), ts.getInitialStates(), ts.getTransitions(), ts.getLabelingFunction());
+    }
+
+    private static List<Map<String, Object>> memories() {
+        List<Map<String, Object>> memories = new ArrayList<>();
+        for (int x = -2; x < 3; x++)
+            for (int y = 0; y < 3; y++) {
+                Map<String, Object> eval = new HashMap<>();
+                eval.put("x", x);
+                eval.put("y", y);
+                eval.put("C", new Vector<>(Arrays.asList(y, x)));
+                if (x > 0)
+                    eval.put("D", new Vector<>());
+                memories.add(eval);
+            }
+        return memories;
+    }
+}
@@ -0,0 +1,61 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class ParallelCompositionTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void matchesNestedInterleave() {
+        TransitionSystem<Integer, String, String> ts1 = TSTestUtils.addTagsByStateNames(TSTestUtils.makeCircularTsWithReset(3));
+        TransitionSystem<Integer, String, String> ts2 = TSTestUtils.addTagsByStateNames(TSTestUtils.makeCircularTsWithReset(4));
+        TransitionSystem<Integer, String, String> ts3 = TSTestUtils.addTagsByStateNames(TSTestUtils.makeCircularTsWithReset(5));
+        TransitionSystem<Pair<Pair<Integer, Integer>, Integer>, String, String> nested =
+                sut.interleave(sut.interleave(ts1, ts2, set("reset")), ts3, set("reset"));
+        TransitionSystem<List<Integer>, String, String> flat = sut.interleave(Arrays.asList(ts1, ts2, ts3), set("reset"));
+
+        Set<List<Integer>> states = new HashSet<>();
+        nested.getStates().forEach(s -> states.add(flatten(s)));
+        Set<Transition<List<Integer>, String>> transitions = new HashSet<>();
+        nested.getTransitions().forEach(t -> transitions.add(new Transition<>(flatten(t.getFrom()), t.getAction(), flatten(t.getTo()))));
+        Map<List<Integer>, Set<String>> labels = new HashMap<>();
+        nested.getLabelingFunction().forEach((s, l) -> labels.put(flatten(s), l));
+
+        assertEquals(3 * 4 * 5, flat.getStates().size());
+        assertEquals(states, flat.getStates());
+        assertEquals(set(Arrays.asList(1, 1, 1)), flat.getInitialStates());
+        assertEquals(nested.getActions(), flat.getActions());
+        assertEquals(transitions, flat.getTransitions());
+        assertEquals(labels, flat.getLabelingFunction());
+    }
+
+    @Test(timeout = 5000)
+    public void manyProcesses() {
+        List<TransitionSystem<Integer, String, String>> systems = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            systems.add(TSTestUtils.makeCircularTsWithReset(3));
+
+        assertEquals(59049, sut.reach(sut.lazyInterleave(systems, set("reset"))).size());
+    }
+
+    private static List<Integer> flatten(Pair<Pair<Integer, Integer>, Integer> s) {
+        return Arrays.asList(s.first.first, s.first.second, s.second);
+    }
+}
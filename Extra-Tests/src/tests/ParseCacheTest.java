@@ -0,0 +1,27 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.impl.ParseCache;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ParseCacheTest {
+
+    @Test(timeout = 2000)
+    public void staysWithinCapacity() {
+        ParseCache<String> cache = new ParseCache<>(8, String::trim);
+        for (int i = 0; i < 100; i++)
+            cache.get(" " + i);
+        assertEquals(8, cache.size());
+        assertEquals(100, cache.misses());
+
+        assertEquals("99", cache.get(" 99"));
+        assertEquals(1, cache.hits());
+    }
+
+    @Test(timeout = 2000, expected = ParseCancellationException.class)
+    public void syntaxErrorsPropagate() {
+        new ParseCache<>(8, c -> ParseCache.parser(c).boolexpr()).get("x <");
+    }
+}
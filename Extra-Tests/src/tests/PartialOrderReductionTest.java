@@ -0,0 +1,112 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.fvm.examples.AlternatingBitProtocolBuilder;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class PartialOrderReductionTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void independentProcessesAreNotInterleaved() {
+        ChannelSystem<String, String> cs = new ChannelSystem<>(Arrays.asList(counter("a"), counter("b"), counter("c")));
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> full = sut.transitionSystemFromChannelSystem(cs);
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> reduced = sut.reducedTransitionSystemFromChannelSystem(cs, set());
+
+        assertEquals(27, full.getStates().size());
+        assertEquals(7, reduced.getStates().size());
+        assertTrue(full.getStates().containsAll(reduced.getStates()));
+        assertEquals(deadlocks(full), deadlocks(reduced));
+    }
+
+    @Test(timeout = 5000)
+    public void observedVariablesKeepTheirHistories() {
+        ChannelSystem<String, String> cs = new ChannelSystem<>(Arrays.asList(counter("a"), counter("b")));
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> full = sut.transitionSystemFromChannelSystem(cs);
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> reduced = sut.reducedTransitionSystemFromChannelSystem(cs, set("a"));
+
+        assertTrue(reduced.getStates().size() < full.getStates().size());
+        assertEquals(observed(full, "a = "), observed(reduced, "a = "));
+        assertEquals(deadlocks(full), deadlocks(reduced));
+    }
+
+    @Test(timeout = 5000)
+    public void sharedVariablesAreFullyInterleaved() {
+        ProgramGraph<String, String> p = counter("a");
+        p.addTransition(new PGTransition<>("a0", "", "shared := 1", "a2"));
+        ProgramGraph<String, String> q = counter("b");
+        q.addTransition(new PGTransition<>("b0", "shared == 1", "b := 5", "b2"));
+        ChannelSystem<String, String> cs = new ChannelSystem<>(Arrays.asList(p, q));
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> full = sut.transitionSystemFromChannelSystem(cs);
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> reduced = sut.reducedTransitionSystemFromChannelSystem(cs, set());
+
+        Pair<List<String>, Map<String, Object>> init = full.getInitialStates().iterator().next();
+        assertEquals(outgoing(full, init), outgoing(reduced, init));
+        assertEquals(deadlocks(full), deadlocks(reduced));
+    }
+
+    @Test(timeout = 10000)
+    public void alternatingBitProtocolKeepsItsDeadlocks() {
+        ChannelSystem<String, String> abp = AlternatingBitProtocolBuilder.build();
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> full = sut.transitionSystemFromChannelSystem(abp);
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> reduced = sut.reducedTransitionSystemFromChannelSystem(abp, set());
+
+        assertTrue(full.getStates().containsAll(reduced.getStates()));
+        assertEquals(deadlocks(full), deadlocks(reduced));
+    }
+
+    /* name0 -> name1 -> name2, setting the variable name on the way */
+    private ProgramGraph<String, String> counter(String name) {
+        ProgramGraph<String, String> pg = sut.createProgramGraph();
+        for (int i = 0; i < 3; i++)
+            pg.addLocation(name + i);
+        pg.addInitialLocation(name + 0);
+        pg.addInitalization(Collections.singletonList(name + " := 0"));
+        pg.addTransition(new PGTransition<>(name + 0, "", name + " := 1", name + 1));
+        pg.addTransition(new PGTransition<>(name + 1, "", name + " := " + name + " + 1", name + 2));
+        return pg;
+    }
+
+    private static <S> Set<S> deadlocks(TransitionSystem<S, ?, ?> ts) {
+        Set<S> deadlocks = new HashSet<>(ts.getStates());
+        for (Transition<S, ?> t : ts.getTransitions())
+            deadlocks.remove(t.getFrom());
+        return deadlocks;
+    }
+
+    private static <S, A> Set<Transition<S, A>> outgoing(TransitionSystem<S, A, ?> ts, S s) {
+        Set<Transition<S, A>> outgoing = new HashSet<>();
+        for (Transition<S, A> t : ts.getTransitions())
+            if (t.getFrom().equals(s))
+                outgoing.add(t);
+        return outgoing;
+    }
+
+    private static <S> Set<String> observed(TransitionSystem<S, ?, String> ts, String prefix) {
+        Set<String> values = new HashSet<>();
+        for (S s : ts.getStates())
+            for (String p : ts.getLabel(s))
+                if (p.startsWith(prefix))
+                    values.add(p);
+        return values;
+    }
+}
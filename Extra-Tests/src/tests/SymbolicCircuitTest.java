@@ -0,0 +1,98 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.circuits.Circuit;
+import il.ac.bgu.cs.fvm.examples.ExampleCircuit;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.SymbolicCircuit;
+import il.ac.bgu.cs.fvm.impl.bdd.Bdd;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SymbolicCircuitTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    /**
+     * A counter of {@code bits} registers, incremented while input "inc" is on;
+     * output "max" is on when all registers are.
+     */
+    private static Circuit counter(int bits) {
+        return new Circuit() {
+            @Override
+            public Set<String> getInputPortNames() {
+                return Collections.singleton("inc");
+            }
+
+            @Override
+            public Set<String> getRegisterNames() {
+                Set<String> names = new HashSet<>();
+                for (int i = 0; i < bits; i++)
+                    names.add("r" + i);
+                return names;
+            }
+
+            @Override
+            public Set<String> getOutputPortNames() {
+                return Collections.singleton("max");
+            }
+
+            @Override
+            public Map<String, Boolean> updateRegisters(Map<String, Boolean> inputs, Map<String, Boolean> registers) {
+                Map<String, Boolean> next = new HashMap<>();
+                boolean carry = inputs.get("inc");
+                for (int i = 0; i < bits; i++) {
+                    boolean r = registers.get("r" + i);
+                    next.put("r" + i, r ^ carry);
+                    carry = r && carry;
+                }
+                return next;
+            }
+
+            @Override
+            public Map<String, Boolean> computeOutputs(Map<String, Boolean> inputs, Map<String, Boolean> registers) {
+                return Collections.singletonMap("max", !registers.containsValue(false));
+            }
+        };
+    }
+
+    @Test(timeout = 5000)
+    public void reachMatchesExplicit() {
+        for (Circuit c : Arrays.asList(new ExampleCircuit(), counter(4))) {
+            TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, Object> ts = sut.transitionSystemFromCircuit(c);
+            SymbolicCircuit symbolic = sut.symbolicTransitionSystemFromCircuit(c);
+            Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> reachable = symbolic.statesOf(symbolic.reachableStates());
+            assertEquals(sut.reach(ts), reachable);
+            assertEquals(ts.getStates().size(), symbolic.reachableStateCount(), 0);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void invariantViolationIsAShortestPath() {
+        SymbolicCircuit symbolic = sut.symbolicTransitionSystemFromCircuit(counter(3));
+        Bdd bdd = symbolic.bdd();
+
+        assertNull(symbolic.invariantViolation(bdd.or(symbolic.atomicProposition("r0"), bdd.not(symbolic.atomicProposition("r0")))));
+        List<Pair<Map<String, Boolean>, Map<String, Boolean>>> path = symbolic.invariantViolation(bdd.not(symbolic.atomicProposition("max")));
+        assertNotNull(path);
+        assertEquals(8, path.size());
+        assertFalse(path.get(0).second.containsValue(true));
+        assertFalse(path.get(7).second.containsValue(false));
+    }
+
+    @Test(timeout = 5000, expected = IllegalArgumentException.class)
+    public void circuitsTooLargeToTabulateAreRejected() {
+        sut.symbolicTransitionSystemFromCircuit(counter(SymbolicCircuit.MAX_VARIABLES));
+    }
+}
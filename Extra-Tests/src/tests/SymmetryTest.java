@@ -0,0 +1,105 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.Symmetry;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SymmetryTest {
+
+    private FvmFacadeImpl sut = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+    }
+
+    @Test(timeout = 5000)
+    public void interchangeableWorkersAreExploredOnce() {
+        ChannelSystem<String, String> cs = new ChannelSystem<>(Arrays.asList(worker(0), worker(1), worker(2)));
+        Symmetry<String> symmetry = new Symmetry<String>().group(Arrays.asList(0, 1, 2),
+                Arrays.asList(Collections.singletonList("n0"), Collections.singletonList("n1"), Collections.singletonList("n2")));
+
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> full = sut.transitionSystemFromChannelSystem(cs);
+        TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> reduced = sut.symmetricTransitionSystemFromChannelSystem(cs, symmetry);
+
+        /* 5 local states per worker: 5^3 states, 35 multisets of them */
+        assertEquals(125, full.getStates().size());
+        assertEquals(35, reduced.getStates().size());
+        assertEquals(125.0 / 35, symmetry.reductionFactor(reduced.getStates()), 1e-9);
+
+        Set<Pair<List<String>, Map<String, Object>>> canonical = new HashSet<>();
+        for (Pair<List<String>, Map<String, Object>> s : full.getStates())
+            canonical.add(symmetry.canonical(s.first, s.second));
+        assertEquals(canonical, reduced.getStates());
+    }
+
+    @Test(timeout = 5000)
+    public void processesWithoutLocalsArePermutedByLocation() {
+        Symmetry<String> symmetry = new Symmetry<String>().group(0, 2);
+        Pair<List<String>, Map<String, Object>> s = symmetry.canonical(Arrays.asList("b", "x", "a"), Collections.emptyMap());
+        assertEquals(Arrays.asList("a", "x", "b"), s.first);
+        assertEquals(2.0, symmetry.orbitSize(s), 0);
+        assertEquals(1.0, symmetry.orbitSize(symmetry.canonical(Arrays.asList("a", "x", "a"), Collections.emptyMap())), 0);
+    }
+
+    @Test(timeout = 5000)
+    public void locationsWithEqualNamesAreStillOrdered() {
+        Object first = new Named("loc"), second = new Named("loc");
+        ProgramGraph<Object, String> pg = sut.createProgramGraph();
+        pg.addLocation(first);
+        pg.addLocation(second);
+        pg.addInitialLocation(first);
+        pg.addTransition(new PGTransition<>(first, "", "", second));
+        ChannelSystem<Object, String> cs = new ChannelSystem<>(Arrays.asList(pg, pg));
+
+        TransitionSystem<Pair<List<Object>, Map<String, Object>>, String, String> reduced =
+                sut.symmetricTransitionSystemFromChannelSystem(cs, new Symmetry<>().group(0, 1));
+
+        /* of (first, second) and (second, first), only one is kept */
+        assertEquals(4, sut.transitionSystemFromChannelSystem(cs).getStates().size());
+        assertEquals(3, reduced.getStates().size());
+    }
+
+    @Test(timeout = 2000, expected = IllegalArgumentException.class)
+    public void groupsMustNotOverlap() {
+        new Symmetry<String>().group(0, 1).group(1, 2);
+    }
+
+    /* a location that is not told apart by its name */
+    private static class Named {
+        private final String name;
+
+        Named(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /* idle -> busy, counting its rounds in its own variable, up to 2 */
+    private ProgramGraph<String, String> worker(int id) {
+        String n = "n" + id;
+        ProgramGraph<String, String> pg = sut.createProgramGraph();
+        pg.addLocation("idle");
+        pg.addLocation("busy");
+        pg.addInitialLocation("idle");
+        pg.addInitalization(Collections.singletonList(n + " := 0"));
+        pg.addTransition(new PGTransition<>("idle", n + " < 2", n + " := " + n + " + 1", "busy"));
+        pg.addTransition(new PGTransition<>("busy", "", "", "idle"));
+        return pg;
+    }
+}
@@ -0,0 +1,104 @@
+package tests;
+
+import il.ac.bgu.cs.fvm.FvmFacade;
+import il.ac.bgu.cs.fvm.exceptions.DeletionOfAttachedStateException;
+import il.ac.bgu.cs.fvm.impl.FvmFacadeImpl;
+import il.ac.bgu.cs.fvm.impl.IndexedTransitionSystem;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static il.ac.bgu.cs.fvm.util.CollectionHelper.set;
+import static org.junit.Assert.*;
+
+public class TransitionSystemIndexTest {
+
+    private FvmFacadeImpl sut = null;
+    private IndexedTransitionSystem<String, String, String> ts = null;
+
+    @Before
+    public void setup() {
+        sut = (FvmFacadeImpl) FvmFacade.createInstance();
+        ts = (IndexedTransitionSystem<String, String, String>) sut.<String, String, String>createTransitionSystem();
+        ts.addStates("a", "b", "c");
+        ts.addActions("x", "y");
+    }
+
+    @Test(timeout = 2000)
+    public void parallelEdgesSurviveTheRemovalOfOne() {
+        ts.addTransition(new Transition<>("a", "x", "b"));
+        ts.addTransition(new Transition<>("a", "y", "b"));
+        assertEquals(set("b"), ts.getSuccessors("a"));
+        assertEquals(set("a"), ts.getPredecessors("b"));
+
+        ts.removeTransition(new Transition<>("a", "x", "b"));
+        assertEquals(set("b"), ts.getSuccessors("a"));
+        assertEquals(set("a"), ts.getPredecessors("b"));
+        assertEquals(set(), ts.getSuccessors("a", "x"));
+        assertEquals(set("b"), ts.getSuccessors("a", "y"));
+
+        ts.removeTransition(new Transition<>("a", "y", "b"));
+        assertEquals(set(), ts.getSuccessors("a"));
+        assertEquals(set(), ts.getPredecessors("b"));
+    }
+
+    @Test(timeout = 2000)
+    public void successorsByActionFollowAddRemoveAndReAdd() {
+        Transition<String, String> t = new Transition<>("a", "x", "c");
+        ts.addTransition(t);
+        ts.addTransition(new Transition<>("a", "x", "b"));
+        assertEquals(set("b", "c"), ts.getSuccessors("a", "x"));
+
+        ts.removeTransition(t);
+        assertEquals(set("b"), ts.getSuccessors("a", "x"));
+        assertEquals(set(), ts.getPredecessors("c", "x"));
+
+        ts.addTransition(t);
+        assertEquals(set("b", "c"), ts.getSuccessors("a", "x"));
+        assertEquals(set("a"), ts.getPredecessors("c", "x"));
+        assertTrue(ts.getTransitions().contains(t));
+    }
+
+    @Test(timeout = 2000)
+    public void successorsByActionFollowTheIndex() {
+        ts.addTransition(new Transition<>("a", "x", "b"));
+        ts.addTransition(new Transition<>("a", "x", "c"));
+        ts.addTransition(new Transition<>("a", "y", "b"));
+        Map<String, Set<String>> expected = new HashMap<>();
+        expected.put("x", set("b", "c"));
+        expected.put("y", set("b"));
+        assertEquals(expected, ts.getSuccessorsByAction("a"));
+
+        ts.removeTransition(new Transition<>("a", "y", "b"));
+        expected.remove("y");
+        assertEquals(expected, ts.getSuccessorsByAction("a"));
+        assertEquals(Collections.emptyMap(), ts.getSuccessorsByAction("b"));
+    }
+
+    @Test(timeout = 2000, expected = DeletionOfAttachedStateException.class)
+    public void statesWithOutgoingEdgesAreNotRemoved() {
+        ts.addTransition(new Transition<>("a", "x", "b"));
+        ts.removeState("a");
+    }
+
+    @Test(timeout = 2000, expected = DeletionOfAttachedStateException.class)
+    public void statesWithIncomingEdgesAreNotRemoved() {
+        ts.addTransition(new Transition<>("a", "x", "b"));
+        ts.removeState("b");
+    }
+
+    @Test(timeout = 2000)
+    public void statesAreRemovedOnceDetached() {
+        Transition<String, String> t = new Transition<>("a", "x", "b");
+        ts.addTransition(t);
+        ts.removeTransition(t);
+        ts.removeState("b");
+        assertEquals(set("a", "c"), ts.getStates());
+        assertEquals(set(), ts.getSuccessors("a"));
+    }
+}
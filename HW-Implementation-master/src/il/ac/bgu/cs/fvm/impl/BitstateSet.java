@@ -0,0 +1,114 @@
+package il.ac.bgu.cs.fvm.impl;
+
+/**
+ * Bitstate hashing (Holzmann's supertrace): a {@link LongStateSet} of
+ * fingerprints that keeps only {@code k} bits per state in a bit array of fixed
+ * size. A state counts as visited when all its bits are set, so two states can
+ * be mistaken for each other and the second is then never explored; the search
+ * covers part of the state space, never more, in a memory budget set up front.
+ * <p>
+ * The bit positions come from the fingerprint by double hashing. Besides the
+ * states stored, the set reports how full it is and estimates what the
+ * collisions have cost.
+ */
+public class BitstateSet implements LongStateSet {
+    public static final int DEFAULT_HASH_FUNCTIONS = 3;
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashFunctions;
+    private long bitsSet;
+    private long size;
+    /* with collision probability p, each state stored stands for p / (1 - p) lost ones */
+    private double expectedOmissions;
+
+    public BitstateSet(int megabytes) {
+        this(megabytes, DEFAULT_HASH_FUNCTIONS);
+    }
+
+    /**
+     * @param megabytes     the size of the bit array, at most 16383.
+     * @param hashFunctions bits per state.
+     */
+    public BitstateSet(int megabytes, int hashFunctions) {
+        if (megabytes < 1 || megabytes >= 1 << 14)
+            throw new IllegalArgumentException("megabytes must be in [1, 16383]: " + megabytes);
+        if (hashFunctions < 1)
+            throw new IllegalArgumentException("hashFunctions must be positive: " + hashFunctions);
+        this.words = new long[megabytes << 17];
+        this.bitCount = (long) words.length << 6;
+        this.hashFunctions = hashFunctions;
+    }
+
+    @Override
+    public boolean add(long fingerprint) {
+        double omission = collisionProbability();
+        long h = fingerprint, step = Fingerprints.mix(fingerprint) | 1;
+        boolean fresh = false;
+        for (int i = 0; i < hashFunctions; i++, h += step) {
+            long bit = Long.remainderUnsigned(h, bitCount);
+            int w = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words[w] & mask) == 0) {
+                words[w] |= mask;
+                bitsSet++;
+                fresh = true;
+            }
+        }
+        if (fresh) {
+            size++;
+            expectedOmissions += omission / (1 - omission);
+        }
+        return fresh;
+    }
+
+    @Override
+    public boolean contains(long fingerprint) {
+        long h = fingerprint, step = Fingerprints.mix(fingerprint) | 1;
+        for (int i = 0; i < hashFunctions; i++, h += step) {
+            long bit = Long.remainderUnsigned(h, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of states stored, i.e. the ones the search explored.
+     */
+    @Override
+    public long size() {
+        return size;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public double fillRatio() {
+        return (double) bitsSet / bitCount;
+    }
+
+    /**
+     * @return the chance that a state not seen yet would now be taken for a
+     * visited one: all of its bits are already set.
+     */
+    public double collisionProbability() {
+        return Math.pow(fillRatio(), hashFunctions);
+    }
+
+    /**
+     * @return the estimated fraction of the new states met that were stored,
+     * assuming each was lost with the probability of a collision at the time
+     * it was met.
+     */
+    public double coverage() {
+        return size == 0 ? 1 : size / (size + expectedOmissions);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d states in %d bits (%d per state, %.2f%% set), estimated coverage %.4f%%, collision probability %.3g",
+                size, bitCount, hashFunctions, 100 * fillRatio(), 100 * coverage(), collisionProbability());
+    }
+}
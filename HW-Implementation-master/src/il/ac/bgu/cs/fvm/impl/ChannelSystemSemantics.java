@@ -0,0 +1,259 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.fvm.programgraph.*;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static il.ac.bgu.cs.fvm.impl.SetUtils.setProduct;
+import static il.ac.bgu.cs.fvm.impl.Utils.*;
+
+/**
+ * The transition system of a channel system, one state at a time. A state is a
+ * pair (location of every program graph, memory). Program graphs move alone,
+ * except on synchronous channel actions ({@code _c?x}, {@code _c!e}), where a
+ * reader and a writer move together under the action {@code ai|aj}. Partners
+ * are found per state through an index of the enabled readers and writers of
+ * each channel, so a rendezvous costs readers times writers on its channel.
+ * <p>
+ * Every transition is turned once into a {@link CompiledTransition}, whose
+ * guard and effect run over one {@link VariableLayout}, so successors are
+ * generated without looking at action strings; memories are
+ * {@link MemoryState}s. Location
+ * vectors and memories are {@link Interner interned}, so a state is a pair of
+ * references to values shared by every state that has them.
+ * <p>
+ * Given observed names, a {@link PartialOrderReduction} is computed from the
+ * compiled transitions, and a state where some program graph is at a
+ * candidate location, with steps enabled, moves that graph alone. Given
+ * a {@link Symmetry}, every state is replaced by its canonical representative.
+ * Given channel capacities, a write to a full channel is not enabled.
+ */
+public class ChannelSystemSemantics<L, A> {
+    private final PartialOrderReduction<L, A> reduction;
+    private final Symmetry<L> symmetry;
+    private final VariableLayout layout = new VariableLayout();
+    private final CompiledActDef actDef = new CompiledActDef(layout);
+    /* states share equal location vectors and memories, as in SPIN's collapse compression */
+    private final Interner<List<L>> locationVectors = new Interner<>(l -> Collections.unmodifiableList(new ArrayList<>(l)));
+    private final Interner<Map<String, Object>> memories = new Interner<>(m -> MemoryState.of(layout, m));
+
+    private final Set<Pair<List<L>, Map<String, Object>>> initialStates;
+    /* per process (not per program graph, which may appear twice): its moves from each location */
+    private final List<Map<L, List<CompiledTransition<L, A>>>> locationToTransitions = new ArrayList<>();
+    private final List<Map<L, List<CompiledTransition<L, A>>>> locationToHandShakes = new ArrayList<>();
+    /* the synchronous channels, numbered densely: handShakeChannels[slot] is the number of the one in slot, or -1 */
+    private final int[] handShakeChannels;
+    private final int handShakeChannelCount;
+    /* the ai|aj label of each rendezvous, built once */
+    private final Map<Pair<CompiledTransition<L, A>, CompiledTransition<L, A>>, A> joinedActions = new ConcurrentHashMap<>();
+
+    public ChannelSystemSemantics(ChannelSystem<L, A> cs) {
+        this(cs, null);
+    }
+
+    public ChannelSystemSemantics(ChannelSystem<L, A> cs, Set<String> observed) {
+        this(cs, observed, null);
+    }
+
+    public ChannelSystemSemantics(ChannelSystem<L, A> cs, Set<String> observed, Symmetry<L> symmetry) {
+        this(cs, observed, symmetry, Collections.emptyMap());
+    }
+
+    /**
+     * @param observed   the names the partial-order reduction preserves; no
+     *                   reduction if {@code null}.
+     * @param capacities the most messages each bounded asynchronous channel
+     *                   holds; channels not in it are unbounded.
+     */
+    public ChannelSystemSemantics(ChannelSystem<L, A> cs, Set<String> observed, Symmetry<L> symmetry, Map<String, Integer> capacities) {
+        this.symmetry = symmetry;
+        capacities.forEach(layout::bound);
+        if (symmetry != null)
+            symmetry.validate(cs);
+
+        //region location and initialization products
+        /* initial locations product */
+        List<Set<L>> discreteInitialLocations = new LinkedList<>();
+        for (ProgramGraph<L, A> pg : cs.getProgramGraphs())
+            discreteInitialLocations.add(pg.getInitialLocations());
+        Set<List<L>> initialLocations = combine(discreteInitialLocations);
+
+        /* initializations product */
+        List<Set<List<String>>> pgInits = new LinkedList<>();
+        for (ProgramGraph<L, A> pg : cs.getProgramGraphs()) {
+            if (pg.getInitalizations().size() > 0)
+                pgInits.add(pg.getInitalizations());
+        }
+        Set<List<List<String>>> initProducts = combine(pgInits);
+        //endregion
+
+        //region initial memories
+        Set<Map<String, Object>> initialMemoryMaps = new HashSet<>();
+        if (initProducts.size() == 0)
+            initialMemoryMaps.add(MemoryState.of(layout, new HashMap<>()));
+        else for (List<List<String>> singleInitProduct : initProducts) {
+            Map<String, Object> memoryMap = new HashMap<>();
+            for (List<String> singlePgInit : singleInitProduct)
+                for (String init : singlePgInit)
+                    memoryMap = actDef.effect(memoryMap, init);
+            initialMemoryMaps.add(MemoryState.of(layout, memoryMap));
+        }
+        //endregion
+
+        this.initialStates = new HashSet<>();
+        for (Pair<List<L>, Map<String, Object>> s : setProduct(initialLocations, initialMemoryMaps))
+            initialStates.add(state(s.first, s.second));
+
+        //region transition and handshake mappings
+        List<List<CompiledTransition<L, A>>> compiled = new ArrayList<>();
+        Map<Integer, Integer> handShakeSlots = new HashMap<>();
+        for (int i = 0; i < cs.getProgramGraphs().size(); i++) {
+            Map<L, List<CompiledTransition<L, A>>> transitionsOfLocations = new HashMap<>();
+            Map<L, List<CompiledTransition<L, A>>> handShakesOfLocations = new HashMap<>();
+            List<CompiledTransition<L, A>> all = new ArrayList<>();
+            locationToTransitions.add(transitionsOfLocations);
+            locationToHandShakes.add(handShakesOfLocations);
+            compiled.add(all);
+
+            for (PGTransition<L, A> t : cs.getProgramGraphs().get(i).getTransitions()) {
+                /* compile up front, giving every variable its slot before the search */
+                CompiledTransition<L, A> c = CompiledTransition.of(i, t, layout);
+                all.add(c);
+                if (!c.kind.isHandShake()) {
+                    transitionsOfLocations.computeIfAbsent(t.getFrom(), k -> new ArrayList<>()).add(c);
+                } else if (c.channel >= 0) {
+                    handShakeSlots.putIfAbsent(c.channel, handShakeSlots.size());
+                    handShakesOfLocations.computeIfAbsent(t.getFrom(), k -> new ArrayList<>()).add(c);
+                }
+            }
+        }
+        this.handShakeChannels = new int[layout.size()];
+        Arrays.fill(handShakeChannels, -1);
+        handShakeSlots.forEach((slot, channel) -> handShakeChannels[slot] = channel);
+        this.handShakeChannelCount = handShakeSlots.size();
+        //endregion
+
+        this.reduction = observed == null ? null : new PartialOrderReduction<>(cs, compiled, observed);
+    }
+
+    private Pair<List<L>, Map<String, Object>> state(List<L> locations, Map<String, Object> memory) {
+        if (symmetry != null) {
+            Pair<List<L>, Map<String, Object>> canonical = symmetry.canonical(locations, memory);
+            locations = canonical.first;
+            memory = canonical.second;
+        }
+        return new Pair<>(locationVectors.intern(locations), memories.intern(memory));
+    }
+
+    public Set<Pair<List<L>, Map<String, Object>>> initialStates() {
+        return initialStates;
+    }
+
+    public Set<Transition<Pair<List<L>, Map<String, Object>>, A>> successors(Pair<List<L>, Map<String, Object>> currentState) {
+        if (reduction != null)
+            for (int i = 0; i < currentState.first.size(); i++)
+                if (reduction.isCandidate(i, currentState.first.get(i))) {
+                    Set<Transition<Pair<List<L>, Map<String, Object>>, A>> ample = new HashSet<>();
+                    successorsOf(currentState, i, ample);
+                    if (!ample.isEmpty())
+                        return ample;
+                }
+
+        Set<Transition<Pair<List<L>, Map<String, Object>>, A>> transitions = new HashSet<>();
+        for (int i = 0; i < currentState.first.size(); i++)
+            successorsOf(currentState, i, transitions);
+        handShakes(currentState, transitions);
+        return transitions;
+    }
+
+    /**
+     * Adds the steps program graph {@code i} takes alone from
+     * {@code currentState} to {@code transitions}.
+     */
+    private void successorsOf(Pair<List<L>, Map<String, Object>> currentState, int i, Set<Transition<Pair<List<L>, Map<String, Object>>, A>> transitions) {
+        Frame f = Frame.of(layout, currentState.second);
+        for (CompiledTransition<L, A> c : locationToTransitions.get(i).getOrDefault(currentState.first.get(i), Collections.emptyList())) {
+            if (!c.guard.test(f))
+                continue;
+            Frame after = c.effect.apply(f);
+            /* a write to a full channel, or a statement the compiler cannot run */
+            if (after == null)
+                continue;
+            Pair<List<L>, Map<String, Object>> nextState = state(
+                    cloneAndReplace(currentState.first, i, c.transition.getTo()),
+                    after == f ? currentState.second : new MemoryState(after)
+            );
+            transitions.add(new Transition<>(currentState, c.transition.getAction(), nextState));
+        }
+    }
+
+    /**
+     * Adds the rendezvous enabled in {@code currentState} to
+     * {@code transitions}: every enabled reader of a synchronous channel with
+     * every enabled writer on it, of another process.
+     */
+    private void handShakes(Pair<List<L>, Map<String, Object>> currentState, Set<Transition<Pair<List<L>, Map<String, Object>>, A>> transitions) {
+        Frame f = Frame.of(layout, currentState.second);
+        /* by channel; null until some handshake is enabled */
+        List<List<CompiledTransition<L, A>>> readers = null;
+        List<List<CompiledTransition<L, A>>> writers = null;
+        for (int i = 0; i < currentState.first.size(); i++)
+            for (CompiledTransition<L, A> h : locationToHandShakes.get(i).getOrDefault(currentState.first.get(i), Collections.emptyList()))
+                if (h.guard.test(f)) {
+                    if (readers == null) {
+                        readers = new ArrayList<>(Collections.nCopies(handShakeChannelCount, null));
+                        writers = new ArrayList<>(Collections.nCopies(handShakeChannelCount, null));
+                    }
+                    List<List<CompiledTransition<L, A>>> side = h.kind == CompiledTransition.Kind.HANDSHAKE_READ ? readers : writers;
+                    int channel = handShakeChannels[h.channel];
+                    if (side.get(channel) == null)
+                        side.set(channel, new ArrayList<>());
+                    side.get(channel).add(h);
+                }
+        if (readers == null)
+            return;
+
+        for (int channel = 0; channel < handShakeChannelCount; channel++) {
+            if (readers.get(channel) == null || writers.get(channel) == null)
+                continue;
+            for (CompiledTransition<L, A> writer : writers.get(channel))
+                for (CompiledTransition<L, A> reader : readers.get(channel))
+                    /* a value is passed both ways or neither, as the evaluator demands */
+                    if (reader.process != writer.process && (reader.variable < 0) == (writer.value == null))
+                        transitions.add(rendezvous(currentState, f, reader, writer));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Transition<Pair<List<L>, Map<String, Object>>, A> rendezvous(Pair<List<L>, Map<String, Object>> currentState, Frame f,
+                                                                        CompiledTransition<L, A> reader, CompiledTransition<L, A> writer) {
+        List<L> locations = cloneAndReplace(
+                cloneAndReplace(currentState.first, reader.process, reader.transition.getTo()),
+                writer.process, writer.transition.getTo());
+        Map<String, Object> memory = currentState.second;
+        if (reader.variable >= 0) {
+            int value = writer.value.applyAsInt(f);
+            Frame next = f.copy();
+            next.set(reader.variable, value);
+            memory = new MemoryState(next);
+        }
+        CompiledTransition<L, A> first = reader.process < writer.process ? reader : writer;
+        CompiledTransition<L, A> second = first == reader ? writer : reader;
+        A action = joinedActions.computeIfAbsent(new Pair<>(first, second),
+                p -> (A) (p.first.transition.getAction().toString() + "|" + p.second.transition.getAction().toString()));
+        return new Transition<>(currentState, action, state(locations, memory));
+    }
+
+    public Set<String> label(Pair<List<L>, Map<String, Object>> s) {
+        Set<String> label = new HashSet<>();
+        for (L location : s.first)
+            label.add(location.toString());
+        for (Map.Entry<String, Object> entry : s.second.entrySet())
+            label.add(String.format("%s = %s", entry.getKey(), entry.getValue().toString()));
+        return label;
+    }
+}
@@ -0,0 +1,61 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.circuits.Circuit;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static il.ac.bgu.cs.fvm.impl.CircuitUtils.allOff;
+import static il.ac.bgu.cs.fvm.impl.CircuitUtils.allPermutations;
+import static il.ac.bgu.cs.fvm.impl.CircuitUtils.getTrueNames;
+import static il.ac.bgu.cs.fvm.impl.SetUtils.union;
+
+/**
+ * The transition system of a circuit, one state at a time. A state is a pair
+ * (inputs, registers); every input permutation is an action, leading to that
+ * permutation and the registers the circuit computes.
+ */
+public class CircuitSemantics {
+    private final Circuit c;
+    private final Set<Map<String, Boolean>> allInputPermutations;
+
+    public CircuitSemantics(Circuit c) {
+        this.c = c;
+        this.allInputPermutations = allPermutations(c.getInputPortNames());
+    }
+
+    public Set<Map<String, Boolean>> actions() {
+        return allInputPermutations;
+    }
+
+    public Set<Object> atomicPropositions() {
+        return new HashSet<>(union(c.getInputPortNames(), c.getRegisterNames(), c.getOutputPortNames()));
+    }
+
+    public Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> initialStates() {
+        Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> initialStates = new HashSet<>();
+        Map<String, Boolean> registersOff = allOff(c.getRegisterNames());
+        for (Map<String, Boolean> perm : allInputPermutations)
+            initialStates.add(new Pair<>(perm, registersOff));
+        return initialStates;
+    }
+
+    public Set<Transition<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>>> successors(Pair<Map<String, Boolean>, Map<String, Boolean>> s) {
+        Set<Transition<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>>> transitions = new HashSet<>();
+        Map<String, Boolean> registers = c.updateRegisters(s.first, s.second);
+        for (Map<String, Boolean> act : allInputPermutations)
+            transitions.add(new Transition<>(s, act, new Pair<>(act, registers)));
+        return transitions;
+    }
+
+    public Set<Object> label(Pair<Map<String, Boolean>, Map<String, Boolean>> s) {
+        return new HashSet<>(union(
+                getTrueNames(c.computeOutputs(s.first, s.second)),
+                getTrueNames(s.first),
+                getTrueNames(s.second)
+        ));
+    }
+}
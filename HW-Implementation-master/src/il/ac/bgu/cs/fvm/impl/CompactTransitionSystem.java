@@ -0,0 +1,217 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.exceptions.*;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+
+import java.util.*;
+
+/**
+ * A frozen transition system, where states, actions and atomic propositions
+ * are interned to dense ints. Edges are kept in compressed-sparse-row
+ * {@code int[]} arrays (one copy ordered by source, one by target) and labels
+ * as fixed-width bitsets, so an edge costs 16 bytes instead of a
+ * {@link Transition} object inside a {@code HashSet}.
+ * <p>
+ * The arrays live on the heap; see {@link IntEncodedTransitionSystem} for the
+ * views built over them. Use {@link #builder()} or
+ * {@link #copyOf(TransitionSystem)} to create one.
+ */
+public class CompactTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> extends IntEncodedTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> {
+    private final ObjectIndex<STATE> states;
+    private final BitSet initialStates;
+    /* edges of state i are at [offsets[i], offsets[i + 1]), sorted by action */
+    private final int[] outOffsets;
+    private final int[] outActions;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inActions;
+    private final int[] inSources;
+    /* label of state i is labels[i * labelWords .. (i + 1) * labelWords) */
+    private final int labelWords;
+    private final long[] labels;
+
+    private CompactTransitionSystem(Builder<STATE, ACTION, ATOMIC_PROPOSITION> b) {
+        super(b.name, b.actions, b.aps);
+        this.states = b.states;
+        this.initialStates = b.initialStates;
+
+        int n = states.size();
+        int[] from = b.edgeFrom.toArray(), action = b.edgeAction.toArray(), to = b.edgeTo.toArray();
+        int[] rowActions = new int[from.length], rowStates = new int[from.length];
+        this.outOffsets = new int[n + 1];
+        int edges = toCsr(from, action, to, n, outOffsets, rowActions, rowStates);
+        this.outActions = Arrays.copyOf(rowActions, edges);
+        this.outTargets = Arrays.copyOf(rowStates, edges);
+        this.inOffsets = new int[n + 1];
+        toCsr(to, action, from, n, inOffsets, rowActions, rowStates);
+        this.inActions = Arrays.copyOf(rowActions, edges);
+        this.inSources = Arrays.copyOf(rowStates, edges);
+
+        this.labelWords = labelWords();
+        this.labels = new long[n * labelWords];
+        int[] labelState = b.labelState.toArray(), labelAp = b.labelAp.toArray();
+        for (int i = 0; i < labelState.length; i++)
+            labels[labelState[i] * labelWords + (labelAp[i] >>> 6)] |= 1L << labelAp[i];
+    }
+
+    public static <S, A, P> Builder<S, A, P> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Freeze a copy of {@code ts}.
+     */
+    public static <S, A, P> CompactTransitionSystem<S, A, P> copyOf(TransitionSystem<S, A, P> ts) {
+        Builder<S, A, P> b = builder();
+        b.name(ts.getName());
+        ts.getStates().forEach(b::addState);
+        ts.getActions().forEach(b::addAction);
+        ts.getAtomicPropositions().forEach(b::addAtomicProposition);
+        ts.getInitialStates().forEach(b::addInitialState);
+        for (Transition<S, A> t : ts.getTransitions())
+            b.addTransition(t.getFrom(), t.getAction(), t.getTo());
+        for (S s : ts.getStates())
+            for (P p : ts.getLabel(s))
+                b.addToLabel(s, p);
+        return b.build();
+    }
+
+    //region storage
+
+    @Override
+    public int stateCount() {
+        return states.size();
+    }
+
+    @Override
+    public int stateId(Object s) {
+        return states.indexOf(s);
+    }
+
+    @Override
+    public STATE stateOf(int id) {
+        return states.get(id);
+    }
+
+    @Override
+    public boolean isInitial(int id) {
+        return initialStates.get(id);
+    }
+
+    @Override
+    protected long outOffset(int s) {
+        return outOffsets[s];
+    }
+
+    @Override
+    protected int outAction(long e) {
+        return outActions[(int) e];
+    }
+
+    @Override
+    protected int outTarget(long e) {
+        return outTargets[(int) e];
+    }
+
+    @Override
+    protected long inOffset(int s) {
+        return inOffsets[s];
+    }
+
+    @Override
+    protected int inAction(long e) {
+        return inActions[(int) e];
+    }
+
+    @Override
+    protected int inSource(long e) {
+        return inSources[(int) e];
+    }
+
+    @Override
+    protected long labelWord(int s, int w) {
+        return labels[s * labelWords + w];
+    }
+    //endregion
+
+    /**
+     * Collects the parts of a {@link CompactTransitionSystem}. Validation
+     * follows {@link TransitionSystemImpl}: transitions and labels may only
+     * refer to states, actions and propositions that were added before.
+     */
+    public static class Builder<S, A, P> {
+        private String name;
+        private final ObjectIndex<S> states = new ObjectIndex<>();
+        private final ObjectIndex<A> actions = new ObjectIndex<>();
+        private final ObjectIndex<P> aps = new ObjectIndex<>();
+        private final BitSet initialStates = new BitSet();
+        private final IntArray edgeFrom = new IntArray();
+        private final IntArray edgeAction = new IntArray();
+        private final IntArray edgeTo = new IntArray();
+        private final IntArray labelState = new IntArray();
+        private final IntArray labelAp = new IntArray();
+
+        public Builder<S, A, P> name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public int addState(S s) {
+            return states.add(s);
+        }
+
+        public int addAction(A a) {
+            return actions.add(a);
+        }
+
+        public int addAtomicProposition(P p) {
+            return aps.add(p);
+        }
+
+        public void addInitialState(S s) {
+            int id = states.indexOf(s);
+            if (id < 0)
+                throw new InvalidInitialStateException(s);
+            initialStates.set(id);
+        }
+
+        public void addTransition(S from, A action, S to) {
+            int f = states.indexOf(from), a = actions.indexOf(action), t = states.indexOf(to);
+            if (f < 0 || a < 0 || t < 0)
+                throw new InvalidTransitionException(new Transition<>(from, action, to));
+            edgeFrom.add(f);
+            edgeAction.add(a);
+            edgeTo.add(t);
+        }
+
+        public void addToLabel(S s, P p) {
+            int id = states.indexOf(s), ap = aps.indexOf(p);
+            if (id < 0)
+                throw new StateNotFoundException(s);
+            if (ap < 0)
+                throw new InvalidLablingPairException(s, p);
+            labelState.add(id);
+            labelAp.add(ap);
+        }
+
+        public CompactTransitionSystem<S, A, P> build() {
+            return new CompactTransitionSystem<>(this);
+        }
+    }
+
+    private static class IntArray {
+        private int[] data = new int[16];
+        private int size;
+
+        void add(int x) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = x;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
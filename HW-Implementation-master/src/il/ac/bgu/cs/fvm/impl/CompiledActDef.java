@@ -0,0 +1,96 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.nanopromela.NanoPromelaParser.StmtContext;
+import il.ac.bgu.cs.fvm.programgraph.ActionDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedActDef;
+import org.antlr.v4.runtime.RecognitionException;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Applies the same actions as {@link ParserBasedActDef}, but parses and
+ * compiles each distinct action once, with {@link NanoPromelaCompiler}, and
+ * runs the compiled form. The memories it returns are {@link MemoryState}s.
+ */
+public class CompiledActDef implements ActionDef {
+    private final VariableLayout layout;
+    private final ParseCache<UnaryOperator<Frame>> cache;
+
+    public CompiledActDef() {
+        this(new VariableLayout());
+    }
+
+    public CompiledActDef(VariableLayout layout) {
+        this.layout = layout;
+        this.cache = new ParseCache<>(ParseCache.DEFAULT_CAPACITY, this::compile);
+    }
+
+    private UnaryOperator<Frame> compile(String action) {
+        StmtContext stmt;
+        try {
+            stmt = ParseCache.parser(action).spec().stmt();
+        } catch (RecognitionException ex) {
+            return null;
+        }
+        return NanoPromelaCompiler.compile(stmt, layout);
+    }
+
+    @Override
+    public Map<String, Object> effect(Map<String, Object> eval, Object action) {
+        if (action.equals(""))
+            return eval;
+        Frame before = Frame.of(layout, eval);
+        Frame after = cache.get((String) action).apply(before);
+        if (after == null)
+            return null;
+        return after == before ? eval : new MemoryState(after);
+    }
+
+    /**
+     * Compiles {@code action} ahead of its first use, giving its variables
+     * their slots. Actions that do not parse are left to fail when used.
+     */
+    public void prepare(String action) {
+        try {
+            if (!action.equals(""))
+                cache.get(action);
+        } catch (RuntimeException ex) {
+            // reported again by effect or isMatchingAction
+        }
+    }
+
+    @Override
+    public boolean isMatchingAction(Object action) {
+        return action.equals("") || cache.get((String) action) != null;
+    }
+
+    public VariableLayout layout() {
+        return layout;
+    }
+
+    public ParseCache<UnaryOperator<Frame>> cache() {
+        return cache;
+    }
+
+    /**
+     * {@code actionDefs} with every plain {@link ParserBasedActDef} replaced by
+     * one {@code CompiledActDef} over {@code layout}, in the same iteration order.
+     */
+    public static Set<ActionDef> compiled(Set<ActionDef> actionDefs, VariableLayout layout) {
+        Set<ActionDef> result = new LinkedHashSet<>();
+        CompiledActDef compiled = null;
+        for (ActionDef ad : actionDefs) {
+            if (ad.getClass() == ParserBasedActDef.class) {
+                if (compiled == null)
+                    compiled = new CompiledActDef(layout);
+                result.add(compiled);
+            } else {
+                result.add(ad);
+            }
+        }
+        return result;
+    }
+}
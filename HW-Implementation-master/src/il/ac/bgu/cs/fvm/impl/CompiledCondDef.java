@@ -0,0 +1,77 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.programgraph.ConditionDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedCondDef;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates the same conditions as {@link ParserBasedCondDef}, but parses and
+ * compiles each distinct condition once, with {@link NanoPromelaCompiler},
+ * and runs the compiled form.
+ */
+public class CompiledCondDef implements ConditionDef {
+    private final VariableLayout layout;
+    private final ParseCache<Predicate<Frame>> cache;
+
+    public CompiledCondDef() {
+        this(new VariableLayout());
+    }
+
+    public CompiledCondDef(VariableLayout layout) {
+        this.layout = layout;
+        this.cache = new ParseCache<>(ParseCache.DEFAULT_CAPACITY,
+                condition -> NanoPromelaCompiler.compile(ParseCache.parser(condition).boolexpr(), layout));
+    }
+
+    @Override
+    public boolean evaluate(Map<String, Object> eval, String condition) {
+        if (condition.equals(""))
+            return true;
+        return cache.get(condition).test(Frame.of(layout, eval));
+    }
+
+    /**
+     * Compiles {@code condition} ahead of its first use, giving its variables
+     * their slots. Conditions that do not parse are left to fail when used.
+     */
+    public void prepare(String condition) {
+        try {
+            if (!condition.equals(""))
+                cache.get(condition);
+        } catch (RuntimeException ex) {
+            // reported again by evaluate
+        }
+    }
+
+    public VariableLayout layout() {
+        return layout;
+    }
+
+    public ParseCache<Predicate<Frame>> cache() {
+        return cache;
+    }
+
+    /**
+     * {@code conditionDefs} with every plain {@link ParserBasedCondDef}
+     * replaced by one {@code CompiledCondDef} over {@code layout}, in the same
+     * iteration order.
+     */
+    public static Set<ConditionDef> compiled(Set<ConditionDef> conditionDefs, VariableLayout layout) {
+        Set<ConditionDef> result = new LinkedHashSet<>();
+        CompiledCondDef compiled = null;
+        for (ConditionDef cd : conditionDefs) {
+            if (cd.getClass() == ParserBasedCondDef.class) {
+                if (compiled == null)
+                    compiled = new CompiledCondDef(layout);
+                result.add(compiled);
+            } else {
+                result.add(cd);
+            }
+        }
+        return result;
+    }
+}
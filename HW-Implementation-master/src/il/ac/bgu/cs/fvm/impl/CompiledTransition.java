@@ -0,0 +1,188 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.nanopromela.NanoPromelaParser;
+import il.ac.bgu.cs.fvm.nanopromela.NanoPromelaParser.*;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+import static il.ac.bgu.cs.fvm.impl.Utils.isSyncronizedChannelAction;
+
+/**
+ * A transition of one process of a channel system, classified and compiled
+ * once, so that generating successors does no string work: its kind, the
+ * slot of the channel it uses, its guard and effect over {@link Frame}s, and
+ * the names it reads and writes.
+ * <p>
+ * A condition or action that does not parse compiles to a guard or effect
+ * that throws the parse error when used, as the parser-based definitions do,
+ * and its footprint is {@link #global}. A synchronous action that does not
+ * parse has no channel, and never synchronizes.
+ */
+final class CompiledTransition<L, A> {
+    enum Kind {
+        /* an assignment, skip, or a compound statement */
+        LOCAL,
+        CHANNEL_READ,
+        CHANNEL_WRITE,
+        HANDSHAKE_READ,
+        HANDSHAKE_WRITE;
+
+        boolean isHandShake() {
+            return this == HANDSHAKE_READ || this == HANDSHAKE_WRITE;
+        }
+    }
+
+    final int process;
+    final PGTransition<L, A> transition;
+    final Kind kind;
+    /* the layout slot of the channel used, or -1 */
+    final int channel;
+    final Predicate<Frame> guard;
+    /* the action, for the kinds that are not handshakes */
+    final UnaryOperator<Frame> effect;
+    /* on HANDSHAKE_READ, the slot received into, or -1 */
+    final int variable;
+    /* on HANDSHAKE_WRITE, the value sent, or null */
+    final ToIntFunction<Frame> value;
+
+    final Set<String> reads = new HashSet<>();
+    final Set<String> writes = new HashSet<>();
+    boolean global;
+
+    private CompiledTransition(int process, PGTransition<L, A> transition, Kind kind, int channel, Predicate<Frame> guard,
+                               UnaryOperator<Frame> effect, int variable, ToIntFunction<Frame> value) {
+        this.process = process;
+        this.transition = transition;
+        this.kind = kind;
+        this.channel = channel;
+        this.guard = guard;
+        this.effect = effect;
+        this.variable = variable;
+        this.value = value;
+    }
+
+    static <L, A> CompiledTransition<L, A> of(int process, PGTransition<L, A> t, VariableLayout layout) {
+        Set<String> conditionReads = new HashSet<>();
+        boolean unparsed = false;
+        Predicate<Frame> guard;
+        try {
+            guard = guard(t.getCondition(), layout, conditionReads);
+        } catch (RuntimeException ex) {
+            guard = f -> {
+                throw ex;
+            };
+            unparsed = true;
+        }
+
+        String action = t.getAction().toString();
+        CompiledTransition<L, A> c;
+        try {
+            c = isSyncronizedChannelAction(action)
+                    ? handShake(process, t, guard, ParseCache.parser(action).onesided(), layout)
+                    : local(process, t, guard, action, layout);
+        } catch (RuntimeException ex) {
+            UnaryOperator<Frame> failing = f -> {
+                throw ex;
+            };
+            c = isSyncronizedChannelAction(action)
+                    ? new CompiledTransition<>(process, t, Kind.HANDSHAKE_READ, -1, guard, null, -1, null)
+                    : new CompiledTransition<>(process, t, Kind.LOCAL, -1, guard, failing, -1, null);
+            unparsed = true;
+        }
+        c.reads.addAll(conditionReads);
+        c.global |= unparsed;
+        return c;
+    }
+
+    private static Predicate<Frame> guard(String condition, VariableLayout layout, Set<String> reads) {
+        if (condition.equals(""))
+            return f -> true;
+        BoolexprContext parsed = ParseCache.parser(condition).boolexpr();
+        names(parsed, reads);
+        return NanoPromelaCompiler.compile(parsed, layout);
+    }
+
+    private static <L, A> CompiledTransition<L, A> local(int process, PGTransition<L, A> t, Predicate<Frame> guard, String action, VariableLayout layout) {
+        if (action.equals(""))
+            return new CompiledTransition<>(process, t, Kind.LOCAL, -1, guard, UnaryOperator.identity(), -1, null);
+
+        StmtContext stmt = ParseCache.parser(action).spec().stmt();
+        UnaryOperator<Frame> effect = NanoPromelaCompiler.compile(stmt, layout);
+        CompiledTransition<L, A> c;
+        if (stmt.chanreadstmt() != null) {
+            int channel = layout.slot(stmt.chanreadstmt().CHANNAME().getText());
+            c = new CompiledTransition<>(process, t, Kind.CHANNEL_READ, channel,
+                    guard.and(f -> f.channelSize(channel) > 0), effect, -1, null);
+        } else if (stmt.chanwritestmt() != null) {
+            c = new CompiledTransition<>(process, t, Kind.CHANNEL_WRITE, layout.slot(stmt.chanwritestmt().CHANNAME().getText()),
+                    guard, effect, -1, null);
+        } else {
+            c = new CompiledTransition<>(process, t, Kind.LOCAL, -1, guard, effect, -1, null);
+        }
+        c.footprint(stmt);
+        return c;
+    }
+
+    private static <L, A> CompiledTransition<L, A> handShake(int process, PGTransition<L, A> t, Predicate<Frame> guard, OnesidedContext c, VariableLayout layout) {
+        CompiledTransition<L, A> h;
+        if (c.hsreadstmt() != null) {
+            TerminalNode variable = c.hsreadstmt().VARNAME();
+            h = new CompiledTransition<>(process, t, Kind.HANDSHAKE_READ, layout.slot(c.hsreadstmt().ZEROCAPACITYCHANNAME().getText()),
+                    guard, null, variable == null ? -1 : layout.slot(variable.getText()), null);
+            if (variable != null)
+                h.writes.add(variable.getText());
+        } else {
+            IntexprContext value = c.hswritestmt().intexpr();
+            h = new CompiledTransition<>(process, t, Kind.HANDSHAKE_WRITE, layout.slot(c.hswritestmt().ZEROCAPACITYCHANNAME().getText()),
+                    guard, null, -1, value == null ? null : NanoPromelaCompiler.compile(value, layout));
+            if (value != null)
+                names(value, h.reads);
+        }
+        return h;
+    }
+
+    private void footprint(StmtContext c) {
+        if (c.skipstmt() != null)
+            return;
+        if (c.assstmt() != null) {
+            writes.add(c.assstmt().VARNAME().getText());
+            names(c.assstmt().intexpr(), reads);
+        } else if (c.atomicstmt() != null) {
+            c.atomicstmt().VARNAME().forEach(v -> writes.add(v.getText()));
+            c.atomicstmt().intexpr().forEach(e -> names(e, reads));
+        } else if (c.chanwritestmt() != null) {
+            reads.add(c.chanwritestmt().CHANNAME().getText());
+            writes.add(c.chanwritestmt().CHANNAME().getText());
+            names(c.chanwritestmt().intexpr(), reads);
+        } else if (c.chanreadstmt() != null) {
+            reads.add(c.chanreadstmt().CHANNAME().getText());
+            writes.add(c.chanreadstmt().CHANNAME().getText());
+            writes.add(c.chanreadstmt().VARNAME().getText());
+        } else {
+            global = true;
+        }
+    }
+
+    private static void names(ParseTree tree, Set<String> into) {
+        if (tree instanceof TerminalNode) {
+            int type = ((TerminalNode) tree).getSymbol().getType();
+            if (type == NanoPromelaParser.VARNAME || type == NanoPromelaParser.CHANNAME)
+                into.add(tree.getText());
+            return;
+        }
+        for (int i = 0; i < tree.getChildCount(); i++)
+            names(tree.getChild(i), into);
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + transition;
+    }
+}
@@ -0,0 +1,329 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Breadth-first exploration in external memory, with delayed duplicate
+ * detection (Stern and Dill, Korf). Nothing is looked up on disk one state at
+ * a time; instead each level is processed in bulk:
+ * <ol>
+ * <li>the states of the frontier file are read in order and expanded; their
+ * successors, encoded with a {@link StateCodec}, fill an in-memory buffer
+ * that is sorted by fingerprint and written out as a run whenever it is
+ * full;</li>
+ * <li>the runs and the sorted file of visited fingerprints are then merged
+ * in one streaming pass: a successor whose fingerprint is not visited yet is
+ * appended to the next frontier file, and the merged fingerprints become the
+ * new visited file. While a level has more than {@link #MAX_FAN_IN} runs,
+ * groups of that many are first merged into longer runs.</li>
+ * </ol>
+ * The heap holds the buffer and one record per run being merged, whatever the
+ * size of the state space; the disk holds eight bytes per visited state plus
+ * two levels of encoded states. As with a {@link HashCompactSet}, states are
+ * told apart by 64-bit fingerprint only.
+ * <p>
+ * Files are created under the working directory and deleted as soon as they
+ * are consumed.
+ */
+public class DiskExploration<S> {
+    public static final int DEFAULT_BUFFER_STATES = 1 << 16;
+    /* the most runs open at once, each with its own IO buffer */
+    public static final int MAX_FAN_IN = 64;
+    private static final int IO_BUFFER = 1 << 16;
+
+    private final StateCodec<S> codec;
+    private final Path dir;
+    private final int bufferStates;
+    private int fileCount;
+    private int depth;
+
+    public DiskExploration(StateCodec<S> codec, Path workingDirectory) {
+        this(codec, workingDirectory, DEFAULT_BUFFER_STATES);
+    }
+
+    /**
+     * @param bufferStates how many successors are sorted in memory per run.
+     */
+    public DiskExploration(StateCodec<S> codec, Path workingDirectory, int bufferStates) {
+        if (bufferStates < 1)
+            throw new IllegalArgumentException("bufferStates must be positive: " + bufferStates);
+        this.codec = codec;
+        this.dir = workingDirectory;
+        this.bufferStates = bufferStates;
+    }
+
+    /**
+     * Expands every state reachable from {@code initialStates} exactly once
+     * (up to fingerprint collisions), level by level.
+     *
+     * @return the number of states reached.
+     */
+    public long reach(Collection<S> initialStates, Function<S, ? extends Collection<S>> successors) {
+        try {
+            Files.createDirectories(dir);
+            depth = 0;
+            Runs runs = new Runs();
+            for (S s : initialStates)
+                runs.add(s);
+            runs.flush();
+            Sorted visited = new Sorted(newFile("visited"), 0);
+            long total = 0;
+            while (true) {
+                Level level = merge(runs.files, visited);
+                visited = level.visited;
+                if (level.frontier.count == 0) {
+                    Files.delete(level.frontier.file);
+                    break;
+                }
+                total += level.frontier.count;
+                depth++;
+                runs = new Runs();
+                try (DataInputStream in = input(level.frontier.file)) {
+                    for (long i = 0; i < level.frontier.count; i++) {
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        for (S t : successors.apply(StateCodecs.decode(codec, bytes)))
+                            runs.add(t);
+                    }
+                }
+                runs.flush();
+                Files.delete(level.frontier.file);
+            }
+            Files.delete(visited.file);
+            return total;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the number of levels the last {@link #reach} went through, i.e.
+     * one more than the longest shortest path from an initial state.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    //region delayed duplicate detection
+
+    /**
+     * Merges the runs into the visited fingerprints, deleting both.
+     */
+    private Level merge(List<Sorted> runs, Sorted visited) throws IOException {
+        while (runs.size() > MAX_FAN_IN) {
+            List<Sorted> longer = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i += MAX_FAN_IN)
+                longer.add(mergeRuns(runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN))));
+            runs = longer;
+        }
+
+        Sorted nextVisited = new Sorted(newFile("visited"), 0);
+        Sorted frontier = new Sorted(newFile("frontier"), 0);
+        PriorityQueue<RunReader> queue = readers(runs.size());
+        try (DataInputStream oldVisited = input(visited.file);
+             DataOutputStream visitedOut = output(nextVisited.file);
+             DataOutputStream frontierOut = output(frontier.file)) {
+            open(runs, queue);
+            long remaining = visited.count;
+            long seen = remaining > 0 ? oldVisited.readLong() : 0;
+            boolean merged = false;
+            long last = 0;
+            while (!queue.isEmpty()) {
+                RunReader r = queue.poll();
+                long fp = r.fingerprint;
+                byte[] bytes = r.bytes;
+                if (r.advance())
+                    queue.add(r);
+                if (merged && fp == last)
+                    continue;
+                merged = true;
+                last = fp;
+                while (remaining > 0 && seen < fp) {
+                    visitedOut.writeLong(seen);
+                    nextVisited.count++;
+                    seen = --remaining > 0 ? oldVisited.readLong() : 0;
+                }
+                if (remaining > 0 && seen == fp)
+                    continue;
+                visitedOut.writeLong(fp);
+                nextVisited.count++;
+                frontierOut.writeInt(bytes.length);
+                frontierOut.write(bytes);
+                frontier.count++;
+            }
+            while (remaining > 0) {
+                visitedOut.writeLong(seen);
+                nextVisited.count++;
+                seen = --remaining > 0 ? oldVisited.readLong() : 0;
+            }
+        } finally {
+            for (RunReader r : queue)
+                r.in.close();
+        }
+        for (Sorted run : runs)
+            Files.delete(run.file);
+        Files.delete(visited.file);
+        return new Level(nextVisited, frontier);
+    }
+
+    /**
+     * Merges the runs into one, deleting them.
+     */
+    private Sorted mergeRuns(List<Sorted> runs) throws IOException {
+        Sorted merged = new Sorted(newFile("run"), 0);
+        PriorityQueue<RunReader> queue = readers(runs.size());
+        try (DataOutputStream out = output(merged.file)) {
+            open(runs, queue);
+            boolean any = false;
+            long last = 0;
+            while (!queue.isEmpty()) {
+                RunReader r = queue.poll();
+                long fp = r.fingerprint;
+                byte[] bytes = r.bytes;
+                if (r.advance())
+                    queue.add(r);
+                if (any && fp == last)
+                    continue;
+                any = true;
+                last = fp;
+                out.writeLong(fp);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                merged.count++;
+            }
+        } finally {
+            for (RunReader r : queue)
+                r.in.close();
+        }
+        for (Sorted run : runs)
+            Files.delete(run.file);
+        return merged;
+    }
+
+    private PriorityQueue<RunReader> readers(int runs) {
+        return new PriorityQueue<>(Math.max(1, runs), Comparator.comparingLong(r -> r.fingerprint));
+    }
+
+    /* adds a reader, positioned on its first record, for each non-empty run */
+    private void open(List<Sorted> runs, PriorityQueue<RunReader> queue) throws IOException {
+        for (Sorted run : runs) {
+            RunReader r = new RunReader(run);
+            if (r.advance())
+                queue.add(r);
+        }
+    }
+
+    /**
+     * The successors of one level, buffered and written out as sorted runs.
+     */
+    private class Runs {
+        final List<Sorted> files = new ArrayList<>();
+        final List<Candidate> buffer = new ArrayList<>();
+
+        void add(S s) throws IOException {
+            byte[] bytes = StateCodecs.encode(codec, s);
+            buffer.add(new Candidate(Fingerprints.of(bytes), bytes));
+            if (buffer.size() == bufferStates)
+                flush();
+        }
+
+        void flush() throws IOException {
+            if (buffer.isEmpty())
+                return;
+            buffer.sort(Comparator.comparingLong(c -> c.fingerprint));
+            Sorted run = new Sorted(newFile("run"), 0);
+            try (DataOutputStream out = output(run.file)) {
+                for (int i = 0; i < buffer.size(); i++) {
+                    Candidate c = buffer.get(i);
+                    if (i > 0 && buffer.get(i - 1).fingerprint == c.fingerprint)
+                        continue;
+                    out.writeLong(c.fingerprint);
+                    out.writeInt(c.bytes.length);
+                    out.write(c.bytes);
+                    run.count++;
+                }
+            }
+            files.add(run);
+            buffer.clear();
+        }
+    }
+
+    private class RunReader {
+        final DataInputStream in;
+        long remaining;
+        long fingerprint;
+        byte[] bytes;
+
+        RunReader(Sorted run) throws IOException {
+            this.in = input(run.file);
+            this.remaining = run.count;
+        }
+
+        boolean advance() throws IOException {
+            if (remaining-- == 0) {
+                in.close();
+                return false;
+            }
+            fingerprint = in.readLong();
+            bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return true;
+        }
+    }
+
+    private static class Candidate {
+        final long fingerprint;
+        final byte[] bytes;
+
+        Candidate(long fingerprint, byte[] bytes) {
+            this.fingerprint = fingerprint;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * A file of {@code count} records in fingerprint order.
+     */
+    private static class Sorted {
+        final Path file;
+        long count;
+
+        Sorted(Path file, long count) {
+            this.file = file;
+            this.count = count;
+        }
+    }
+
+    private static class Level {
+        final Sorted visited;
+        final Sorted frontier;
+
+        Level(Sorted visited, Sorted frontier) {
+            this.visited = visited;
+            this.frontier = frontier;
+        }
+    }
+    //endregion
+
+    //region files
+
+    private Path newFile(String kind) throws IOException {
+        Path file = dir.resolve("bfs-" + kind + "-" + fileCount++ + ".bin");
+        Files.deleteIfExists(file);
+        Files.createFile(file);
+        return file;
+    }
+
+    private static DataInputStream input(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER));
+    }
+
+    private static DataOutputStream output(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER));
+    }
+    //endregion
+}
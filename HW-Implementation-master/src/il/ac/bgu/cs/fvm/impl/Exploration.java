@@ -0,0 +1,215 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Breadth-first exploration from a set of initial states, shared by the
+ * facade's reach and by the builders that construct a system state by state.
+ * <p>
+ * The parallel mode processes the search one level at a time: the frontier is
+ * split recursively across a {@link ForkJoinPool} (idle workers steal the
+ * halves that are not started yet) and new states are claimed in a concurrent
+ * visited set, so each is expanded once. Each slice collects what it finds in
+ * buffers of its own, which are concatenated when the level is done. The
+ * states and transitions found do not depend on the scheduling; only the order
+ * within a level may. The successor function must then be safe to call from
+ * several threads at once.
+ */
+public class Exploration {
+    /* frontier slices smaller than this are expanded by one worker */
+    private static final int SPLIT_THRESHOLD = 64;
+
+    /**
+     * @return every state reachable from {@code initialStates}.
+     */
+    public static <S> Set<S> reach(Set<S> initialStates, Function<S, ? extends Collection<S>> successors, boolean parallel) {
+        return parallel ? parallelReach(initialStates, successors, ForkJoinPool.commonPool()) : serialReach(initialStates, successors);
+    }
+
+    /**
+     * Depth-first search that keeps only fingerprints of the states it has
+     * seen, in {@code visited}; the heap holds just the states on the stack.
+     *
+     * @return the number of states explored, which is every reachable one
+     * unless {@code visited} loses some to fingerprint collisions.
+     */
+    public static <S> long reach(Set<S> initialStates, Function<S, ? extends Collection<S>> successors, LongStateSet visited) {
+        long explored = 0;
+        Deque<Iterator<? extends S>> stack = new ArrayDeque<>();
+        for (S s0 : initialStates) {
+            if (!visited.add(Fingerprints.of(s0)))
+                continue;
+            explored++;
+            stack.push(successors.apply(s0).iterator());
+            while (!stack.isEmpty()) {
+                Iterator<? extends S> next = stack.peek();
+                if (!next.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                S t = next.next();
+                if (visited.add(Fingerprints.of(t))) {
+                    explored++;
+                    stack.push(successors.apply(t).iterator());
+                }
+            }
+        }
+        return explored;
+    }
+
+    /**
+     * @return the outgoing transitions of every state reachable from
+     * {@code initialStates}, in the order the states were found.
+     */
+    public static <S, A> Map<S, Set<Transition<S, A>>> explore(Set<S> initialStates, Function<S, Set<Transition<S, A>>> successors) {
+        Map<S, Set<Transition<S, A>>> explored = new LinkedHashMap<>();
+        Deque<S> pending = new ArrayDeque<>(initialStates);
+        Set<S> seen = new HashSet<>(initialStates);
+        while (!pending.isEmpty()) {
+            S s = pending.poll();
+            Set<Transition<S, A>> out = successors.apply(s);
+            explored.put(s, out);
+            for (Transition<S, A> t : out)
+                if (seen.add(t.getTo()))
+                    pending.add(t.getTo());
+        }
+        return explored;
+    }
+
+    /**
+     * {@link #explore(Set, Function)}, optionally in parallel.
+     */
+    public static <S, A> Map<S, Set<Transition<S, A>>> explore(Set<S> initialStates, Function<S, Set<Transition<S, A>>> successors, boolean parallel) {
+        return parallel ? parallelExplore(initialStates, successors, ForkJoinPool.commonPool()) : explore(initialStates, successors);
+    }
+
+    private static <S> Set<S> serialReach(Set<S> initialStates, Function<S, ? extends Collection<S>> successors) {
+        Set<S> reachables = new HashSet<>(initialStates);
+        Deque<S> pending = new ArrayDeque<>(initialStates);
+        while (!pending.isEmpty())
+            for (S t : successors.apply(pending.poll()))
+                if (reachables.add(t))
+                    pending.add(t);
+        return reachables;
+    }
+
+    private static <S> Set<S> parallelReach(Set<S> initialStates, Function<S, ? extends Collection<S>> successors, ForkJoinPool pool) {
+        Set<S> reachables = ConcurrentHashMap.newKeySet();
+        reachables.addAll(initialStates);
+        List<S> frontier = new ArrayList<>(initialStates);
+        while (!frontier.isEmpty())
+            frontier = pool.invoke(new Level<>(frontier, 0, frontier.size(), successors, reachables));
+        return new HashSet<>(reachables);
+    }
+
+    private static <S, A> Map<S, Set<Transition<S, A>>> parallelExplore(Set<S> initialStates, Function<S, Set<Transition<S, A>>> successors, ForkJoinPool pool) {
+        Map<S, Set<Transition<S, A>>> explored = new LinkedHashMap<>();
+        Set<S> seen = ConcurrentHashMap.newKeySet();
+        seen.addAll(initialStates);
+        List<S> frontier = new ArrayList<>(initialStates);
+        while (!frontier.isEmpty()) {
+            Expansion<S, A> level = pool.invoke(new ExpandLevel<>(frontier, 0, frontier.size(), successors, seen));
+            for (int i = 0; i < frontier.size(); i++)
+                explored.put(frontier.get(i), level.transitions.get(i));
+            frontier = level.found;
+        }
+        return explored;
+    }
+
+    /**
+     * Expands {@code frontier[from, to)} and returns the states it was first to claim.
+     */
+    private static class Level<S> extends RecursiveTask<List<S>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<S> frontier;
+        private final int from;
+        private final int to;
+        private final Function<S, ? extends Collection<S>> successors;
+        private final Set<S> visited;
+
+        Level(List<S> frontier, int from, int to, Function<S, ? extends Collection<S>> successors, Set<S> visited) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.successors = successors;
+            this.visited = visited;
+        }
+
+        @Override
+        protected List<S> compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                List<S> found = new ArrayList<>();
+                for (int i = from; i < to; i++)
+                    for (S t : successors.apply(frontier.get(i)))
+                        if (visited.add(t))
+                            found.add(t);
+                return found;
+            }
+            int mid = (from + to) >>> 1;
+            Level<S> left = new Level<>(frontier, from, mid, successors, visited);
+            left.fork();
+            List<S> found = new Level<>(frontier, mid, to, successors, visited).compute();
+            found.addAll(left.join());
+            return found;
+        }
+    }
+
+    /**
+     * The outgoing transitions of a frontier slice, in frontier order, and the
+     * states the slice was first to claim.
+     */
+    private static class Expansion<S, A> {
+        final List<Set<Transition<S, A>>> transitions = new ArrayList<>();
+        final List<S> found = new ArrayList<>();
+
+        Expansion<S, A> append(Expansion<S, A> next) {
+            transitions.addAll(next.transitions);
+            found.addAll(next.found);
+            return this;
+        }
+    }
+
+    private static class ExpandLevel<S, A> extends RecursiveTask<Expansion<S, A>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<S> frontier;
+        private final int from;
+        private final int to;
+        private final Function<S, Set<Transition<S, A>>> successors;
+        private final Set<S> visited;
+
+        ExpandLevel(List<S> frontier, int from, int to, Function<S, Set<Transition<S, A>>> successors, Set<S> visited) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.successors = successors;
+            this.visited = visited;
+        }
+
+        @Override
+        protected Expansion<S, A> compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                Expansion<S, A> result = new Expansion<>();
+                for (int i = from; i < to; i++) {
+                    Set<Transition<S, A>> out = successors.apply(frontier.get(i));
+                    result.transitions.add(out);
+                    for (Transition<S, A> t : out)
+                        if (visited.add(t.getTo()))
+                            result.found.add(t.getTo());
+                }
+                return result;
+            }
+            int mid = (from + to) >>> 1;
+            ExpandLevel<S, A> right = new ExpandLevel<>(frontier, mid, to, successors, visited);
+            right.fork();
+            return new ExpandLevel<>(frontier, from, mid, successors, visited).compute().append(right.join());
+        }
+    }
+}
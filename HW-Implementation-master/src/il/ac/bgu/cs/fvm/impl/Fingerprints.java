@@ -0,0 +1,110 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 64-bit fingerprints, for stores that identify states by hash rather than by
+ * keeping the state itself.
+ */
+public class Fingerprints {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * A MurmurHash3-style 64-bit hash of {@code bytes[off, off + len)}.
+     */
+    public static long of(byte[] bytes, int off, int len) {
+        long h = 0x9E3779B97F4A7C15L ^ (len * C1);
+        int i = off, end = off + len;
+        for (; i + 8 <= end; i += 8) {
+            long k = (bytes[i] & 0xFFL)
+                    | (bytes[i + 1] & 0xFFL) << 8
+                    | (bytes[i + 2] & 0xFFL) << 16
+                    | (bytes[i + 3] & 0xFFL) << 24
+                    | (bytes[i + 4] & 0xFFL) << 32
+                    | (bytes[i + 5] & 0xFFL) << 40
+                    | (bytes[i + 6] & 0xFFL) << 48
+                    | (bytes[i + 7] & 0xFFL) << 56;
+            h ^= mixKey(k);
+            h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+        }
+        long k = 0;
+        for (int shift = 0; i < end; i++, shift += 8)
+            k |= (bytes[i] & 0xFFL) << shift;
+        h ^= mixKey(k);
+        return mix(h);
+    }
+
+    public static long of(byte[] bytes) {
+        return of(bytes, 0, bytes.length);
+    }
+
+    /**
+     * A 64-bit hash of a state that agrees with {@code equals} for the shapes
+     * the facade builds states from: strings, numbers, booleans, {@link Pair}s,
+     * lists (by order), and sets and maps (regardless of order). Anything else
+     * falls back on its {@code hashCode}, which leaves only 32 bits of it.
+     */
+    public static long of(Object o) {
+        if (o == null)
+            return 0;
+        if (o instanceof String) {
+            String str = (String) o;
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < str.length(); i++)
+                h = (h ^ str.charAt(i)) * 0x100000001b3L;
+            return mix(h ^ str.length());
+        }
+        if (o instanceof Integer || o instanceof Long || o instanceof Short || o instanceof Byte)
+            return mix(((Number) o).longValue() * C1 + C2);
+        if (o instanceof Boolean)
+            return (Boolean) o ? C1 : C2;
+        if (o instanceof Pair) {
+            Pair<?, ?> p = (Pair<?, ?>) o;
+            return mix(of(p.first) * C1 + Long.rotateLeft(of(p.second), 31));
+        }
+        if (o instanceof List) {
+            long h = C2;
+            for (Object e : (List<?>) o)
+                h = mix(h * C1 + of(e));
+            return h;
+        }
+        if (o instanceof Set) {
+            long h = 0;
+            for (Object e : (Set<?>) o)
+                h += of(e);
+            return mix(h ^ ((Set<?>) o).size() * C2);
+        }
+        if (o instanceof Map) {
+            long h = 0;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet())
+                h += mix(of(e.getKey()) * C1 + of(e.getValue()));
+            return mix(h ^ ((Map<?, ?>) o).size() * C1);
+        }
+        return mix(o.hashCode() * C1);
+    }
+
+    /**
+     * The MurmurHash3 finalizer; a bijection on longs that spreads every input
+     * bit over the whole output.
+     */
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long mixKey(long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        k *= C2;
+        return k;
+    }
+}
@@ -0,0 +1,206 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.*;
+
+/**
+ * The variables of a NanoPromela memory, stored by their {@link VariableLayout}
+ * slot: an unboxed {@code int} per variable and an {@link IntQueue} per
+ * channel. Values that are neither (which NanoPromela code never writes) are
+ * kept by name, so converting a memory map to a frame and back is lossless.
+ * <p>
+ * Frames are not changed once they are handed out; the compiled statements of
+ * {@link NanoPromelaCompiler} return updated copies. A copy shares its three
+ * arrays, and the channel queues in them, with the frame it was made from,
+ * and copies an array only when it first writes to it: an assignment to a
+ * set variable allocates one {@code int[]}, and a channel operation leaves the
+ * other queues shared. Comparisons skip arrays that two frames share.
+ * {@link MemoryState} is the read-only {@code Map} view of a frame.
+ */
+public final class Frame {
+    private final VariableLayout layout;
+    private int[] values;
+    private boolean[] defined;
+    private IntQueue[] channels;
+    private Map<String, Object> others;
+    /* which arrays this frame may write to, not sharing them with another frame */
+    private boolean ownsValues, ownsDefined, ownsChannels;
+
+    private Frame(VariableLayout layout, int slots) {
+        this.layout = layout;
+        this.values = new int[slots];
+        this.defined = new boolean[slots];
+        this.channels = new IntQueue[slots];
+        this.ownsValues = ownsDefined = ownsChannels = true;
+    }
+
+    private Frame(Frame f) {
+        this.layout = f.layout;
+        this.values = f.values;
+        this.defined = f.defined;
+        this.channels = f.channels;
+        this.others = f.others;
+    }
+
+    public static Frame empty(VariableLayout layout) {
+        return new Frame(layout, layout.size());
+    }
+
+    public static Frame of(VariableLayout layout, Map<String, Object> memory) {
+        if (memory instanceof MemoryState && ((MemoryState) memory).frame().layout == layout)
+            return ((MemoryState) memory).frame();
+        for (String name : memory.keySet())
+            layout.slot(name);
+        Frame f = empty(layout);
+        memory.forEach((name, value) -> {
+            int slot = layout.slotOf(name);
+            if (value instanceof Integer) {
+                f.values[slot] = (Integer) value;
+                f.defined[slot] = true;
+            } else if (value instanceof IntQueue) {
+                f.channels[slot] = (IntQueue) value;
+            } else if (value instanceof List && isIntList((List<?>) value)) {
+                @SuppressWarnings("unchecked")
+                List<Integer> queue = (List<Integer>) value;
+                f.channels[slot] = IntQueue.of(queue, layout.capacity(slot));
+            } else {
+                if (f.others == null)
+                    f.others = new HashMap<>();
+                f.others.put(name, value);
+            }
+        });
+        return f;
+    }
+
+    private static boolean isIntList(List<?> list) {
+        for (Object o : list)
+            if (!(o instanceof Integer))
+                return false;
+        return true;
+    }
+
+    public VariableLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return the value of the variable in {@code slot}; 0 if it has none.
+     */
+    public int get(int slot) {
+        return slot < values.length ? values[slot] : 0;
+    }
+
+    public boolean isDefined(int slot) {
+        return slot < defined.length && defined[slot];
+    }
+
+    /**
+     * @return the queue of the channel in {@code slot}, head first; {@code null} if it has none.
+     */
+    public IntQueue channel(int slot) {
+        return slot < channels.length ? channels[slot] : null;
+    }
+
+    public int channelSize(int slot) {
+        IntQueue q = channel(slot);
+        return q == null ? 0 : q.size();
+    }
+
+    /**
+     * @return the value of {@code name} that is neither an int nor a channel, if any.
+     */
+    Object other(Object name) {
+        return others == null ? null : others.get(name);
+    }
+
+    private int slots() {
+        return Math.max(values.length, Math.max(defined.length, channels.length));
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> memory = others == null ? new HashMap<>() : new HashMap<>(others);
+        for (int slot = 0; slot < slots(); slot++) {
+            if (isDefined(slot))
+                memory.put(layout.name(slot), get(slot));
+            else if (channel(slot) != null)
+                memory.put(layout.name(slot), channel(slot));
+        }
+        return memory;
+    }
+
+    /**
+     * @return the {@link Map#hashCode()} of {@link #toMap()}, without building it.
+     */
+    int mapHashCode() {
+        int h = others == null ? 0 : others.hashCode();
+        for (int slot = 0; slot < slots(); slot++) {
+            if (isDefined(slot))
+                h += layout.name(slot).hashCode() ^ Integer.hashCode(get(slot));
+            else if (channel(slot) != null)
+                h += layout.name(slot).hashCode() ^ channel(slot).hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * @return whether {@code f}, of the same layout, holds the same memory.
+     */
+    boolean contentEquals(Frame f) {
+        int slots = Math.max(slots(), f.slots());
+        if (values != f.values)
+            for (int slot = 0; slot < slots; slot++)
+                if (get(slot) != f.get(slot))
+                    return false;
+        if (defined != f.defined)
+            for (int slot = 0; slot < slots; slot++)
+                if (isDefined(slot) != f.isDefined(slot))
+                    return false;
+        if (channels != f.channels)
+            for (int slot = 0; slot < slots; slot++)
+                if (!Objects.equals(channel(slot), f.channel(slot)))
+                    return false;
+        return Objects.equals(others, f.others);
+    }
+
+    //region copy-on-write updates, for compiled statements
+
+    /**
+     * A copy that shares everything with this frame until it is written to.
+     */
+    Frame copy() {
+        return new Frame(this);
+    }
+
+    void set(int slot, int value) {
+        if (!ownsValues || slot >= values.length) {
+            values = Arrays.copyOf(values, capacity(slot, values.length));
+            ownsValues = true;
+        }
+        values[slot] = value;
+        if (!isDefined(slot)) {
+            if (!ownsDefined || slot >= defined.length) {
+                defined = Arrays.copyOf(defined, capacity(slot, defined.length));
+                ownsDefined = true;
+            }
+            defined[slot] = true;
+        }
+    }
+
+    void setChannel(int slot, IntQueue queue) {
+        if (!ownsChannels || slot >= channels.length) {
+            channels = Arrays.copyOf(channels, capacity(slot, channels.length));
+            ownsChannels = true;
+        }
+        channels[slot] = queue;
+    }
+
+    /* room for slot and for every slot the layout has now */
+    private int capacity(int slot, int length) {
+        return Math.max(Math.max(length, slot + 1), layout.size());
+    }
+    //endregion
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -4,8 +4,6 @@ import il.ac.bgu.cs.fvm.FvmFacade;
 import il.ac.bgu.cs.fvm.automata.Automaton;
 import il.ac.bgu.cs.fvm.automata.MultiColorAutomaton;
 import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
-import il.ac.bgu.cs.fvm.channelsystem.InterleavingActDef;
-import il.ac.bgu.cs.fvm.channelsystem.ParserBasedInterleavingActDef;
 import il.ac.bgu.cs.fvm.circuits.Circuit;
 import il.ac.bgu.cs.fvm.exceptions.ActionNotFoundException;
 import il.ac.bgu.cs.fvm.exceptions.StateNotFoundException;
@@ -24,15 +22,15 @@ import il.ac.bgu.cs.fvm.nanopromela.NanoPromelaParser.StmtContext;
 import il.ac.bgu.cs.fvm.verification.VerificationSucceeded;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static il.ac.bgu.cs.fvm.impl.Utils.*;
-import static il.ac.bgu.cs.fvm.impl.CircuitUtils.allOff;
-import static il.ac.bgu.cs.fvm.impl.CircuitUtils.allPermutations;
-import static il.ac.bgu.cs.fvm.impl.CircuitUtils.getTrueNames;
 import static il.ac.bgu.cs.fvm.impl.SetUtils.*;
 import static il.ac.bgu.cs.fvm.impl.Utils.LogicalUtils.*;
-import static il.ac.bgu.cs.fvm.impl.Utils.isSyncronizedChannelAction;
 
 /**
  * Implement the methods in this class. You may add additional classes as you
@@ -40,6 +38,20 @@ import static il.ac.bgu.cs.fvm.impl.Utils.isSyncronizedChannelAction;
  * sub-packages.
  */
 public class FvmFacadeImpl implements FvmFacade {
+    /* tells the red search's fingerprints apart from the blue one's */
+    private static final long RED_SALT = 0x5851f42d4c957f2dL;
+
+    private boolean parallel = false;
+
+    /**
+     * Let {@link #reach} and the {@code interleave} of transition systems
+     * split each BFS level across the common {@link java.util.concurrent.ForkJoinPool}.
+     * Off by default. Systems that explore themselves lazily are always
+     * searched on one thread.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
 
     private <S> void ValidateState(TransitionSystem<S, ?, ?> ts, S s) {
         if (!ts.getStates().contains(s)) throw new StateNotFoundException(s);
@@ -127,6 +139,9 @@ public class FvmFacadeImpl implements FvmFacade {
     @Override
     public <S> Set<S> post(TransitionSystem<S, ?, ?> ts, S s) {
         ValidateState(ts, s);
+        if (ts instanceof IndexedTransitionSystem)
+            return new HashSet<>(((IndexedTransitionSystem<S, ?, ?>) ts).getSuccessors(s));
+
         Set<S> results = new HashSet<>();
         for (Transition<S, ?> t : ts.getTransitions()) {
             if (t.getFrom().equals(s))
@@ -149,6 +164,9 @@ public class FvmFacadeImpl implements FvmFacade {
     public <S, A> Set<S> post(TransitionSystem<S, A, ?> ts, S s, A a) {
         ValidateState(ts, s);
         ValidateAction(ts, a);
+        if (ts instanceof IndexedTransitionSystem)
+            return new HashSet<>(((IndexedTransitionSystem<S, A, ?>) ts).getSuccessors(s, a));
+
         Set<S> results = new HashSet<>();
         for (Transition<S, ?> t : ts.getTransitions()) {
             if (t.getFrom().equals(s) && t.getAction().equals(a))
@@ -171,6 +189,9 @@ public class FvmFacadeImpl implements FvmFacade {
     @Override
     public <S> Set<S> pre(TransitionSystem<S, ?, ?> ts, S s) {
         ValidateState(ts, s);
+        if (ts instanceof IndexedTransitionSystem)
+            return new HashSet<>(((IndexedTransitionSystem<S, ?, ?>) ts).getPredecessors(s));
+
         Set<S> results = new HashSet<>();
         for (Transition<S, ?> t : ts.getTransitions()) {
             if (t.getTo().equals(s))
@@ -193,6 +214,9 @@ public class FvmFacadeImpl implements FvmFacade {
     public <S, A> Set<S> pre(TransitionSystem<S, A, ?> ts, S s, A a) {
         ValidateState(ts, s);
         ValidateAction(ts, a);
+        if (ts instanceof IndexedTransitionSystem)
+            return new HashSet<>(((IndexedTransitionSystem<S, A, ?>) ts).getPredecessors(s, a));
+
         Set<S> results = new HashSet<>();
         for (Transition<S, ?> t : ts.getTransitions()) {
             if (t.getTo().equals(s) && t.getAction().equals(a))
@@ -214,14 +238,100 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S, A> Set<S> reach(TransitionSystem<S, A, ?> ts) {
-        Set<S> reachables = new HashSet<>();
-        Set<S> currentStates = ts.getInitialStates();
-        while (currentStates.size() > 0) {
-            reachables.addAll(currentStates);
-            currentStates = post(ts, currentStates);
-            currentStates.removeAll(reachables);
+        if (ts instanceof IntEncodedTransitionSystem)
+            return reachById((IntEncodedTransitionSystem<S, A, ?>) ts);
+        if (ts instanceof ImplicitTransitionSystem)
+            return Exploration.reach(ts.getInitialStates(), ((ImplicitTransitionSystem<S, A, ?>) ts)::getSuccessors, false);
+        return Exploration.reach(ts.getInitialStates(), successorFunction(ts), parallel);
+    }
+
+    /**
+     * Tracks {@code reach(ts)} as {@code ts} is edited, doing work in proportion
+     * to what each edit changes; see {@link IncrementalReach}.
+     *
+     * @param ts a system made by {@link #createTransitionSystem()}.
+     */
+    public <S, A> IncrementalReach<S, A> incrementalReach(TransitionSystem<S, A, ?> ts) {
+        if (!(ts instanceof TransitionSystemImpl))
+            throw new IllegalArgumentException("incremental reach needs a " + TransitionSystemImpl.class.getSimpleName());
+        return new IncrementalReach<>((TransitionSystemImpl<S, A, ?>) ts);
+    }
+
+    /**
+     * Counts the reachable states with a depth-first search that stores in
+     * {@code visited} only fingerprints of the states it has seen. With a
+     * {@link HashCompactSet} the count is exact unless two fingerprints collide
+     * ({@link HashCompactSet#collisionProbability()}); with a {@link BitstateSet}
+     * the memory is fixed up front and the count is a lower bound (read
+     * {@link BitstateSet#coverage()} afterwards). A lazily explored
+     * system is searched through its successor function directly, without
+     * memoizing, so only the states on the stack are held.
+     */
+    public <S> long reach(TransitionSystem<S, ?, ?> ts, LongStateSet visited) {
+        return Exploration.reach(ts.getInitialStates(), unmemoizedSuccessors(ts), visited);
+    }
+
+    /**
+     * Counts the reachable states with a {@link DiskExploration} under
+     * {@code workingDirectory}, so the heap stays bounded however many there
+     * are. A lazily explored system is searched without memoizing.
+     */
+    public <S> long reach(TransitionSystem<S, ?, ?> ts, StateCodec<S> codec, Path workingDirectory) {
+        return new DiskExploration<>(codec, workingDirectory).reach(ts.getInitialStates(), unmemoizedSuccessors(ts));
+    }
+
+    private <S, A> Function<S, Set<S>> unmemoizedSuccessors(TransitionSystem<S, A, ?> ts) {
+        if (!(ts instanceof ImplicitTransitionSystem))
+            return successorFunction(ts);
+        Function<S, Set<Transition<S, A>>> transitions = ((ImplicitTransitionSystem<S, A, ?>) ts).successorFunction();
+        return s -> {
+            Set<S> res = new LinkedHashSet<>();
+            for (Transition<S, A> t : transitions.apply(s))
+                res.add(t.getTo());
+            return res;
+        };
+    }
+
+    private <S, P> Function<S, Set<P>> unmemoizedLabels(TransitionSystem<S, ?, P> ts) {
+        if (ts instanceof ImplicitTransitionSystem)
+            return ((ImplicitTransitionSystem<S, ?, P>) ts).labelFunction();
+        return ts::getLabel;
+    }
+
+    /**
+     * The successors of a state, from the system's index if it has one, and
+     * otherwise from an adjacency map built with one pass over the transitions.
+     */
+    private <S> Function<S, Set<S>> successorFunction(TransitionSystem<S, ?, ?> ts) {
+        if (ts instanceof IndexedTransitionSystem)
+            return ((IndexedTransitionSystem<S, ?, ?>) ts)::getSuccessors;
+        Map<S, Set<S>> successors = new HashMap<>();
+        for (Transition<S, ?> t : ts.getTransitions())
+            successors.computeIfAbsent(t.getFrom(), k -> new HashSet<>()).add(t.getTo());
+        return s -> successors.getOrDefault(s, Collections.emptySet());
+    }
+
+    /**
+     * Level-by-level search over state ids, so the heap holds two bits per state
+     * rather than the states themselves.
+     */
+    private <S> Set<S> reachById(IntEncodedTransitionSystem<S, ?, ?> ts) {
+        BitSet reachables = new BitSet(ts.stateCount());
+        BitSet currentStates = new BitSet(ts.stateCount());
+        for (int s = 0; s < ts.stateCount(); s++)
+            if (ts.isInitial(s))
+                currentStates.set(s);
+        while (!currentStates.isEmpty()) {
+            reachables.or(currentStates);
+            BitSet nextStates = new BitSet(ts.stateCount());
+            for (int s = currentStates.nextSetBit(0); s >= 0; s = currentStates.nextSetBit(s + 1))
+                ts.forEachSuccessor(s, t -> {
+                    if (!reachables.get(t))
+                        nextStates.set(t);
+                });
+            currentStates = nextStates;
         }
-        return reachables;
+        return ts.statesOf(reachables);
     }
 
     @Override
@@ -231,56 +341,49 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S1, S2, A, P> TransitionSystem<Pair<S1, S2>, A, P> interleave(TransitionSystem<S1, A, P> ts1, TransitionSystem<S2, A, P> ts2, Set<A> handShakingActions) {
-        TransitionSystem<Pair<S1, S2>, A, P> tsInterleaved = createTransitionSystem();
-
-        /* APs, actions and initial states */
-        tsInterleaved.addAllActions(union(ts1.getActions(), ts2.getActions()));
-        tsInterleaved.addAllAtomicPropositions(union(ts1.getAtomicPropositions(), ts2.getAtomicPropositions()));
-        tsInterleaved.addAllStates(setProduct(ts1.getInitialStates(), ts2.getInitialStates()));
-        for (Pair<S1, S2> s : tsInterleaved.getStates())
-            tsInterleaved.addInitialState(s);
-
-        /* states (reachable) and transitions */
-        Set<Pair<S1, S2>> currentStates = tsInterleaved.getInitialStates();
-        Set<Pair<S1, S2>> nextStates;
-        Set<A> nonHS1 = difference(ts1.getActions(), handShakingActions);
-        Set<A> nonHS2 = difference(ts2.getActions(), handShakingActions);
-        Set<Transition<Pair<S1, S2>, A>> currentTransitions;
-        do {
-            nextStates = new HashSet<>();
-            currentTransitions = new HashSet<>();
-            for (Pair<S1, S2> s : currentStates) {
-                for (A a : nonHS1)
-                    for (Pair<S1, S2> nextS : setProduct(post(ts1, s.first, a), NewSet(s.second))) {
-                        nextStates.add(nextS);
-                        currentTransitions.add(new Transition<>(s, a, nextS));
-                    }
-                for (A a : nonHS2)
-                    for (Pair<S1, S2> nextS : setProduct(NewSet(s.first), post(ts2, s.second, a))) {
-                        nextStates.add(nextS);
-                        currentTransitions.add(new Transition<>(s, a, nextS));
-                    }
-                for (A a : handShakingActions)
-                    for (Pair<S1, S2> nextS : setProduct(post(ts1, s.first, a), post(ts2, s.second, a))) {
-                        nextStates.add(nextS);
-                        currentTransitions.add(new Transition<>(s, a, nextS));
-                    }
-            }
-            nextStates = difference(nextStates, tsInterleaved.getStates());
-            tsInterleaved.addAllStates(nextStates);
-            currentStates = nextStates;
-            nextStates = null;
-            for (Transition<Pair<S1, S2>, A> t : currentTransitions)
-                tsInterleaved.addTransition(t);
-            currentTransitions = null;
-        } while (!currentStates.isEmpty());
+        // the semantics reads the components' successors as it goes, which lazy components memoize unsafely
+        boolean threadSafe = !(ts1 instanceof ImplicitTransitionSystem) && !(ts2 instanceof ImplicitTransitionSystem);
+        return materialize(lazyInterleave(ts1, ts2, handShakingActions), parallel && threadSafe);
+    }
+
+    /**
+     * Like {@link #interleave(TransitionSystem, TransitionSystem, Set)}, but a
+     * pair's transitions are only computed when the returned system is queried,
+     * so reach and verification visit just the pairs they need.
+     */
+    public <S1, S2, A, P> ImplicitTransitionSystem<Pair<S1, S2>, A, P> lazyInterleave(TransitionSystem<S1, A, P> ts1, TransitionSystem<S2, A, P> ts2, Set<A> handShakingActions) {
+        InterleavingSemantics<S1, S2, A, P> semantics = new InterleavingSemantics<>(ts1, ts2, handShakingActions);
+        return ImplicitTransitionSystem.<Pair<S1, S2>, A, P>builder()
+                .initialStates(semantics.initialStates())
+                .successors(semantics::successors)
+                .labels(semantics::label)
+                .actions(semantics.actions())
+                .atomicPropositions(semantics.atomicPropositions())
+                .build();
+    }
 
-        /* labels */
-        for (Pair<S1, S2> s : tsInterleaved.getStates())
-            for (P p : union(ts1.getLabel(s.first), ts2.getLabel(s.second)))
-                tsInterleaved.addToLabel(s, p);
+    /**
+     * The interleaving of all of {@code systems} at once, as nesting the binary
+     * {@link #interleave(TransitionSystem, TransitionSystem, Set)} would give
+     * it, but with flat states: a list holding one state per system.
+     */
+    public <S, A, P> TransitionSystem<List<S>, A, P> interleave(List<TransitionSystem<S, A, P>> systems, Set<A> handShakingActions) {
+        return materialize(lazyInterleave(systems, handShakingActions), parallel);
+    }
 
-        return tsInterleaved;
+    /**
+     * Like {@link #interleave(List, Set)}, but states are only computed when
+     * the returned system is queried.
+     */
+    public <S, A, P> ImplicitTransitionSystem<List<S>, A, P> lazyInterleave(List<TransitionSystem<S, A, P>> systems, Set<A> handShakingActions) {
+        ParallelComposition<S, A, P> semantics = new ParallelComposition<>(systems, handShakingActions);
+        return ImplicitTransitionSystem.<List<S>, A, P>builder()
+                .initialStates(semantics.initialStates())
+                .successors(semantics::successors)
+                .labels(semantics::label)
+                .actions(semantics.actions())
+                .atomicPropositions(semantics.atomicPropositions())
+                .build();
     }
 
     @Override
@@ -330,346 +433,196 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, Object> transitionSystemFromCircuit(Circuit c) {
-        TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, Object> ts = createTransitionSystem();
-
-        /* auxiliary variable */
-        Set<Map<String, Boolean>> allInputPermutations = allPermutations(c.getInputPortNames());
-        /* actions */
-        ts.addAllActions(allInputPermutations);
-        /* initialize initial states */
-        Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> initialStates = new HashSet<>();
-        Map<String, Boolean> registersOff = allOff(c.getRegisterNames());
-        for (Map<String, Boolean> perm : allInputPermutations)
-            initialStates.add(new Pair<>(perm, registersOff));
-
-
-        /* only reachable states */
-        Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> currentStates = initialStates;
-        Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> post = new HashSet<>();
-        do {
-            ts.addAllStates(currentStates);
-
-            for (Pair<Map<String, Boolean>, Map<String, Boolean>> s : currentStates)
-                for (Map<String, Boolean> action : ts.getActions())
-                    post.add(new Pair<>(action, c.updateRegisters(s.first, s.second)));
-
-            currentStates = difference(post, ts.getStates());
-            post = new HashSet<>();
-        } while (!currentStates.isEmpty());
-        for (Pair<Map<String, Boolean>, Map<String, Boolean>> s : initialStates)
-            ts.addInitialState(s);
-
-        /* transitions */
-        for (Pair<Map<String, Boolean>, Map<String, Boolean>> s : ts.getStates())
-            for (Map<String, Boolean> act : ts.getActions())
-                ts.addTransition(new Transition<>(s, act, new Pair<>(act, c.updateRegisters(s.first, s.second))));
-
-        /* labels and atomic-propositions */
-        for (String x : union(c.getInputPortNames(), c.getRegisterNames(), c.getOutputPortNames()))
-            ts.addAtomicProposition(x);
-
-        for (Pair<Map<String, Boolean>, Map<String, Boolean>> s : ts.getStates()) {
-            Set<String> label = union(
-                    getTrueNames(c.computeOutputs(s.first, s.second)),
-                    getTrueNames(s.first),
-                    getTrueNames(s.second)
-            );
-            for (String p : label)
-                ts.addToLabel(s, p);
-        }
-        return ts;
+        return materialize(lazyTransitionSystemFromCircuit(c));
+    }
+
+    /**
+     * Like {@link #transitionSystemFromCircuit}, but states are only computed
+     * when the returned system is queried.
+     */
+    public ImplicitTransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, Object> lazyTransitionSystemFromCircuit(Circuit c) {
+        CircuitSemantics semantics = new CircuitSemantics(c);
+        return ImplicitTransitionSystem.<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, Object>builder()
+                .initialStates(semantics.initialStates())
+                .successors(semantics::successors)
+                .labels(semantics::label)
+                .actions(semantics.actions())
+                .atomicPropositions(semantics.atomicPropositions())
+                .build();
+    }
+
+    /**
+     * The system of {@link #transitionSystemFromCircuit} as BDDs; its
+     * {@link SymbolicCircuit#reachableStates()} answers reach without
+     * enumerating states. Building it still evaluates the circuit on every
+     * assignment of its inputs and registers.
+     *
+     * @throws IllegalArgumentException if the circuit has more than
+     *                                  {@link SymbolicCircuit#MAX_VARIABLES}
+     *                                  input ports and registers.
+     */
+    public SymbolicCircuit symbolicTransitionSystemFromCircuit(Circuit c) {
+        return new SymbolicCircuit(c);
     }
 
     @Override
     public <L, A> TransitionSystem<Pair<L, Map<String, Object>>, A, String> transitionSystemFromProgramGraph(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs) {
-        TransitionSystem<Pair<L, Map<String, Object>>, A, String> ts = createTransitionSystem();
-        Map<String, Object> initialMemory = new HashMap<>();
-        // region initial memory mapping
-        Set<Map<String, Object>> initialMemoryMaps = new HashSet<>();
-        for (List<String> initList : pg.getInitalizations()) {
-            Map<String, Object> mem = new HashMap<>();
-            for (String init : initList)
-                mem = ActionDef.effect(actionDefs, mem, init);
-            initialMemoryMaps.add(mem);
-        }
-        if (initialMemoryMaps.isEmpty())
-            initialMemoryMaps.add(new HashMap<>());
-        // endregion
-        // region initial states
-        for (Pair<L, Map<String, Object>> s : setProduct(pg.getInitialLocations(), initialMemoryMaps)) {
-            ts.addState(s);
-            ts.addInitialState(s);
-        }
-        // endregion
-        // region rest states (reachable)
-        Set<Pair<L, Map<String, Object>>> currentStates = ts.getInitialStates();
-        Set<Pair<L, Map<String, Object>>> nextStates;
-        Set<Transition<Pair<L, Map<String, Object>>, A>> transitions = new HashSet<>();
-        Map<L, Set<PGTransition<L, A>>> transitionsOfStates = new HashMap<>();
-        for (L l : pg.getLocations())
-            transitionsOfStates.put(l, new HashSet<>());
-        for (PGTransition<L, A> t : pg.getTransitions())
-            transitionsOfStates.get(t.getFrom()).add(t);
-        do {
-            nextStates = new HashSet<>();
-            for (Pair<L, Map<String, Object>> s : currentStates) {
-                for (PGTransition<L, A> t : transitionsOfStates.getOrDefault(s.first, new HashSet<>()))
-                    if (ConditionDef.evaluate(conditionDefs, s.second, t.getCondition())) {
-                        Pair<L, Map<String, Object>> dst = new Pair<>(t.getTo(), ActionDef.effect(actionDefs, s.second, t.getAction()));
-                        nextStates.add(dst);
-                        transitions.add(new Transition<>(s, t.getAction(), dst));
-                    }
-            }
-            nextStates = difference(nextStates, ts.getStates());
-            ts.addAllStates(nextStates);
-            currentStates = nextStates;
-        } while (!currentStates.isEmpty());
-        // endregion
-        // region transitions and actions
-        for (Transition<Pair<L, Map<String, Object>>, A> t : transitions) {
-            ts.addAction(t.getAction());
-            ts.addTransition(t);
-        }
-        // endregion
-        // region aps and labels
-        for (Pair<L, Map<String, Object>> s : ts.getStates()) {
-            ts.addAtomicProposition(s.first.toString());
-            ts.addToLabel(s, s.first.toString());
-            for (Map.Entry<String, Object> entry : s.second.entrySet()) {
-                String ap = String.format("%s = %s", entry.getKey(), entry.getValue().toString());
-                ts.addAtomicProposition(ap);
-                ts.addToLabel(s, ap);
-            }
-        }
-        // endregion
-        return ts;
+        return materialize(lazyTransitionSystemFromProgramGraph(pg, actionDefs, conditionDefs));
+    }
+
+    /**
+     * Like {@link #transitionSystemFromProgramGraph}, but states are only computed
+     * when the returned system is queried.
+     */
+    public <L, A> ImplicitTransitionSystem<Pair<L, Map<String, Object>>, A, String> lazyTransitionSystemFromProgramGraph(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs) {
+        ProgramGraphSemantics<L, A> semantics = new ProgramGraphSemantics<>(pg, actionDefs, conditionDefs);
+        return ImplicitTransitionSystem.<Pair<L, Map<String, Object>>, A, String>builder()
+                .initialStates(semantics.initialStates())
+                .successors(semantics::successors)
+                .labels(semantics::label)
+                .build();
     }
 
     @Override
     public <L, A> TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> transitionSystemFromChannelSystem(ChannelSystem<L, A> cs) {
-        TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> ts = new TransitionSystemImpl<>();
-        ActionDef actDef = new ParserBasedActDef();
-        ConditionDef condDef = new ParserBasedCondDef();
-        InterleavingActDef handShakesDef = new ParserBasedInterleavingActDef();
-
-        //region INITIAL STATES (COMBINING INITIAL LOCATIONS AND MEMORY)
-        //region location and initialization products
-        /* initial locations product */
-        List<Set<L>> discreteInitialLocations = new LinkedList<>();
-        for (ProgramGraph<L, A> pg : cs.getProgramGraphs())
-            discreteInitialLocations.add(pg.getInitialLocations());
-        Set<List<L>> initialLocations = combine(discreteInitialLocations);
-
-        /* initializations product */
-        List<Set<List<String>>> pgInits = new LinkedList<>();
-        for (ProgramGraph<L, A> pg : cs.getProgramGraphs()) {
-            if (pg.getInitalizations().size() > 0)
-                pgInits.add(pg.getInitalizations());
-        }
-        Set<List<List<String>>> initProducts = combine(pgInits);
-        //endregion
-
-        //region initial memories
-        Set<Map<String, Object>> initialMemoryMaps = new HashSet<>();
-        if (initProducts.size() == 0)
-            initialMemoryMaps.add(new HashMap<>());
-        else for (List<List<String>> singleInitProduct : initProducts) {
-            Map<String, Object> memoryMap = new HashMap<>();
-            for (List<String> singlePgInit : singleInitProduct)
-                for (String init : singlePgInit)
-                    memoryMap = actDef.effect(memoryMap, init);
-            initialMemoryMaps.add(memoryMap);
-        }
-        //endregion
-
-        Set<Pair<List<L>, Map<String, Object>>> initialStates = setProduct(initialLocations, initialMemoryMaps);
-        ts.addAllStates(initialStates);
-        initialStates.forEach(ts::addInitialState);
-        //endregion
-
-        // region REST STATES (REACHABLE)
-        //region transition and action mappings
-        Map<ProgramGraph<L, A>, Map<A, PGTransition<L, A>>> pgToSimultaneousActionsToTransitions = new HashMap<>();
-        Map<ProgramGraph<L, A>, Map<L, Set<PGTransition<L, A>>>> pgToLocationToTransitions = new HashMap<>();
-
-        for (ProgramGraph<L, A> pg : cs.getProgramGraphs())
-            pgToSimultaneousActionsToTransitions.put(pg, new HashMap<>());
-
-        for (ProgramGraph<L, A> pg : cs.getProgramGraphs()) {
-            /* create the mapping of the PG */
-            Map<L, Set<PGTransition<L, A>>> transitionsOfLocations = new HashMap<>();
-            pgToLocationToTransitions.put(pg, transitionsOfLocations);
-
-            /* initialize mappings for locations and put the transitions in the map */
-            for (L l : pg.getLocations())
-                transitionsOfLocations.put(l, new HashSet<>());
-            for (PGTransition<L, A> t : pg.getTransitions()) {
-                transitionsOfLocations.get(t.getFrom()).add(t);
-                if (isSyncronizedChannelAction(t.getAction())) {
-                    pgToSimultaneousActionsToTransitions.get(pg).put(t.getAction(), t);
-                }
-            }
-        }
-
-        List<Pair<ProgramGraph<L, A>, Set<A>>> pgToSimActions = new LinkedList<>();
-        pgToSimultaneousActionsToTransitions.forEach((key, value) -> pgToSimActions.add(new Pair<>(key, value.keySet())));
-        Set<List<Pair<ProgramGraph<L, A>, A>>> simActionsProduct = setProductUsingPairList(pgToSimActions);
-        //endregion
+        return materialize(lazyTransitionSystemFromChannelSystem(cs));
+    }
 
+    /**
+     * Like {@link #transitionSystemFromChannelSystem}, but states are only computed
+     * when the returned system is queried.
+     */
+    public <L, A> ImplicitTransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> lazyTransitionSystemFromChannelSystem(ChannelSystem<L, A> cs) {
+        return lazyTransitionSystem(new ChannelSystemSemantics<>(cs));
+    }
 
-        Set<Pair<List<L>, Map<String, Object>>> currentStates = ts.getInitialStates();
-        Set<Pair<List<L>, Map<String, Object>>> nextStates;
-        Set<Transition<Pair<List<L>, Map<String, Object>>, A>> reachableTransitions = new HashSet<>();
+    /**
+     * Like {@link #transitionSystemFromChannelSystem}, but explores only a
+     * partial-order reduced part of it (see {@link PartialOrderReduction}). The
+     * result has the same deadlocks and satisfies the same LTL formulas without
+     * next, as long as they only refer to the variables and locations in
+     * {@code observed}.
+     */
+    public <L, A> TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> reducedTransitionSystemFromChannelSystem(ChannelSystem<L, A> cs, Set<String> observed) {
+        return materialize(lazyReducedTransitionSystemFromChannelSystem(cs, observed));
+    }
 
-        do {
-            nextStates = new HashSet<>();
-            for (Pair<List<L>, Map<String, Object>> currentState : currentStates) {
-                for (int i = 0; i < currentState.first.size(); i++) {
-                    L currentLocationPg = currentState.first.get(i);
-                    ProgramGraph<L, A> pg = cs.getProgramGraphs().get(i);
-
-                    for (PGTransition<L, A> currentTransition : pgToLocationToTransitions.get(pg).get(currentLocationPg)) {
-                        if (condDef.evaluate(currentState.second, currentTransition.getCondition())) {
-                            A currentAction = currentTransition.getAction();
-                            if (isSyncronizedChannelAction(currentAction)) {
-                                //region simultaneous
-                                for (List<Pair<ProgramGraph<L, A>, A>> pgAndSimActions : simActionsProduct) // for each possibility of simultaneous actions
-                                    if (hasActionOfPg(currentAction, pg, pgAndSimActions)) { // only if the possibility refers to the current action
-                                        // pickup some other action and if possible commit both actions together
-                                        for (int j = 0; j < pgAndSimActions.size(); j++) {
-                                            ProgramGraph<L, A> otherPg = pgAndSimActions.get(j).first;
-                                            A otherAction = pgAndSimActions.get(j).second;
-                                            if (!otherPg.equals(pg))
-                                                if (isReadWriteActions(currentAction, otherAction)) {
-                                                    A interleavedAction = interleaveActions(i, j, currentAction, pgAndSimActions.get(j).second);
-                                                    Pair<List<L>, Map<String, Object>> nextState = new Pair<>(
-                                                            cloneAndReplace(
-                                                                    cloneAndReplace(currentState.first, i, currentTransition.getTo()),
-                                                                    j,
-                                                                    pgToSimultaneousActionsToTransitions
-                                                                            .get(otherPg)
-                                                                            .get(otherAction)
-                                                                            .getTo()),
-                                                            handShakesDef.effect(currentState.second, interleavedAction)
-                                                    );
-                                                    nextStates.add(nextState);
-                                                    reachableTransitions.add(new Transition<>(currentState, interleavedAction, nextState));
-                                                }
-                                        }
-                                    }
-                                //endregion
-                            } else
-                                //region non-simultaneous
-                                if (isItReallyPossibleAction(currentState.second, currentTransition.getAction())) {
-                                    Pair<List<L>, Map<String, Object>> nextState = new Pair<>(
-                                            cloneAndReplace(currentState.first, i, currentTransition.getTo()),
-                                            actDef.effect(currentState.second, currentAction)
-                                    );
-
-                                    nextStates.add(nextState);
-                                    reachableTransitions.add(new Transition<>(currentState, currentAction, nextState));
-                                }
-                                //endregion
-                        }
-                    }
-                }
-            }
+    /**
+     * Like {@link #reducedTransitionSystemFromChannelSystem}, but states are
+     * only computed when the returned system is queried.
+     */
+    public <L, A> ImplicitTransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> lazyReducedTransitionSystemFromChannelSystem(ChannelSystem<L, A> cs, Set<String> observed) {
+        return lazyTransitionSystem(new ChannelSystemSemantics<>(cs, observed));
+    }
 
-            //region (loop step)
-            nextStates = difference(nextStates, ts.getStates());
-            ts.addAllStates(nextStates);
-            currentStates = nextStates;
-            //endregion
-        } while (!currentStates.isEmpty());
-        //endregion
+    /**
+     * Like {@link #transitionSystemFromChannelSystem}, but with one state for
+     * all the states that differ by a permutation of the interchangeable
+     * processes declared in {@code symmetry}. Call
+     * {@link Symmetry#reductionFactor} on the states for the number each one
+     * stands for.
+     */
+    public <L, A> TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> symmetricTransitionSystemFromChannelSystem(ChannelSystem<L, A> cs, Symmetry<L> symmetry) {
+        return materialize(lazySymmetricTransitionSystemFromChannelSystem(cs, symmetry));
+    }
 
-        //region TRANSITIONS & ACTIONS
-        // actions
-        for (Transition<Pair<List<L>, Map<String, Object>>, A> t : reachableTransitions) {
-            ts.addAction(t.getAction());
-            ts.addTransition(t);
-        }
-        //endregion
+    /**
+     * Like {@link #symmetricTransitionSystemFromChannelSystem}, but states are
+     * only computed when the returned system is queried.
+     */
+    public <L, A> ImplicitTransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> lazySymmetricTransitionSystemFromChannelSystem(ChannelSystem<L, A> cs, Symmetry<L> symmetry) {
+        return lazyTransitionSystem(new ChannelSystemSemantics<>(cs, null, symmetry));
+    }
 
-        //region APS & LABELS
-        for (Pair<List<L>, Map<String, Object>> s : ts.getStates()) {
-            for (L location : s.first) {
-                ts.addAtomicProposition(location.toString());
-                ts.addToLabel(s, location.toString());
-            }
-            for (Map.Entry<String, Object> entry : s.second.entrySet()) {
-                String ap = String.format("%s = %s", entry.getKey(), entry.getValue().toString());
-                ts.addAtomicProposition(ap);
-                ts.addToLabel(s, ap);
-            }
-        }
-        //endregion
+    /**
+     * Like {@link #transitionSystemFromChannelSystem}, but the asynchronous
+     * channels named in {@code capacities} hold at most that many messages;
+     * a write to a full channel is not enabled, as in Promela.
+     */
+    public <L, A> TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> boundedTransitionSystemFromChannelSystem(ChannelSystem<L, A> cs, Map<String, Integer> capacities) {
+        return materialize(lazyBoundedTransitionSystemFromChannelSystem(cs, capacities));
+    }
 
-        return ts;
+    /**
+     * Like {@link #boundedTransitionSystemFromChannelSystem}, but states are
+     * only computed when the returned system is queried.
+     */
+    public <L, A> ImplicitTransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> lazyBoundedTransitionSystemFromChannelSystem(ChannelSystem<L, A> cs, Map<String, Integer> capacities) {
+        return lazyTransitionSystem(new ChannelSystemSemantics<>(cs, null, null, capacities));
     }
 
-    private <L, A> boolean hasActionOfPg(A action, ProgramGraph<L, A> pg, List<Pair<ProgramGraph<L, A>, A>> simulActions) {
-        for (Pair<ProgramGraph<L, A>, A> pair : simulActions) {
-            if (pair.first.equals(pg))
-                return pair.second.equals(action);
-        }
-        return false;
+    private <L, A> ImplicitTransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> lazyTransitionSystem(ChannelSystemSemantics<L, A> semantics) {
+        return ImplicitTransitionSystem.<Pair<List<L>, Map<String, Object>>, A, String>builder()
+                .initialStates(semantics.initialStates())
+                .successors(semantics::successors)
+                .labels(semantics::label)
+                .build();
     }
 
-    private static <K, T> Set<List<Pair<K, T>>> setProductUsingPairList(Set<List<Pair<K, T>>> s1, Pair<K, Set<T>> s2) {
-        Set<List<Pair<K, T>>> product = new HashSet<>();
-        for (List<Pair<K, T>> l : s1)
-            for (T x : s2.second) {
-                List<Pair<K, T>> newList = new LinkedList<>();
-                newList.addAll(l);
-                newList.add(new Pair<>(s2.first, x));
-                product.add(newList);
-            }
-        return product;
-    }
-    private static <K, T> Set<List<Pair<K, T>>> setProductUsingPairList(List<Pair<K, Set<T>>> sets) {
-        sets = new LinkedList<>(sets);
-        Set<List<Pair<K, T>>> p = new HashSet<>();
-        for (int i = sets.size() - 1; i >= 0; i--)
-            if (sets.get(i).second.isEmpty())
-                sets.remove(i);
-
-        if (sets.isEmpty())
-            return p;
-        Pair<K, Set<T>> firstPair = sets.remove(0);
-        for (T x : firstPair.second) {
-            List<Pair<K, T>> list = new LinkedList<>();
-            list.add(new Pair<>(firstPair.first, x));
-            p.add(list);
+    /**
+     * Builds the reachable part of {@code implicit} off the heap: a
+     * {@link DiskExploration} visits the states level by level, and each
+     * state's transitions and label go straight into a
+     * {@link MappedTransitionSystem} under {@code workingDirectory}. Use with
+     * the lazy versions of the builders, e.g.
+     * {@link #lazyTransitionSystemFromProgramGraph}.
+     */
+    public <S, A, P> MappedTransitionSystem<S, A, P> materialize(ImplicitTransitionSystem<S, A, P> implicit, Path workingDirectory, StateCodec<S> codec) {
+        MappedTransitionSystem.Builder<S, A, P> b = MappedTransitionSystem.builder(workingDirectory, codec);
+        b.name(implicit.getName());
+        if (implicit.declaredActions() != null)
+            implicit.declaredActions().forEach(b::addAction);
+        if (implicit.declaredAtomicPropositions() != null)
+            implicit.declaredAtomicPropositions().forEach(b::addAtomicProposition);
+        for (S s : implicit.getInitialStates()) {
+            b.addState(s);
+            b.addInitialState(s);
         }
-        while (!sets.isEmpty())
-            p = setProductUsingPairList(p, sets.remove(0));
-
-        return p;
+        Function<S, Set<Transition<S, A>>> transitions = implicit.successorFunction();
+        Function<S, Set<P>> labels = implicit.labelFunction();
+        new DiskExploration<>(codec, b.directory().resolve("bfs")).reach(implicit.getInitialStates(), s -> {
+            List<S> targets = new ArrayList<>();
+            for (Transition<S, A> t : transitions.apply(s)) {
+                b.addState(t.getTo());
+                b.addAction(t.getAction());
+                b.addTransition(s, t.getAction(), t.getTo());
+                targets.add(t.getTo());
+            }
+            for (P p : labels.apply(s)) {
+                b.addAtomicProposition(p);
+                b.addToLabel(s, p);
+            }
+            return targets;
+        });
+        return b.build();
     }
 
-    private <A> A interleaveActions(int i, int j, A ai, A aj) {
-        if (i < j)
-            return (A) (ai.toString() + "|" + aj.toString());
-        else
-            return (A) (aj.toString() + "|" + ai.toString());
+    /**
+     * Copy the reachable part of {@code implicit} into a {@link TransitionSystemImpl}.
+     */
+    private <S, A, P> TransitionSystem<S, A, P> materialize(ImplicitTransitionSystem<S, A, P> implicit) {
+        return materialize(implicit, false);
     }
 
-    private <A> boolean isReadWriteActions(A a1, A a2) {
-        String first = a1.toString();
-        String second = a2.toString();
-
-        if(first.contains("?") && second.contains("!")){
-            String chanName1 = first.split("\\?")[0];
-            String chanName2 = second.split("\\!")[0];
-            return chanName1.equals(chanName2);
-        }
-        if(first.contains("!") && second.contains("?")){
-            String chanName1 = first.split("\\!")[0];
-            String chanName2 = second.split("\\?")[0];
-            return chanName1.equals(chanName2);
-        }
-        return false;
+    /**
+     * @param parallel expand each BFS level across worker threads. The
+     *                 memo is bypassed then, so {@code implicit}'s successor
+     *                 function must be safe to call concurrently.
+     */
+    private <S, A, P> TransitionSystem<S, A, P> materialize(ImplicitTransitionSystem<S, A, P> implicit, boolean parallel) {
+        TransitionSystem<S, A, P> ts = createTransitionSystem();
+        Map<S, Set<Transition<S, A>>> explored = parallel
+                ? Exploration.explore(implicit.getInitialStates(), implicit.successorFunction(), true)
+                : Exploration.explore(implicit.getInitialStates(), implicit::getOutgoingTransitions);
+        ts.addAllStates(explored.keySet());
+        implicit.getInitialStates().forEach(ts::addInitialState);
+        ts.addAllActions(implicit.getActions());
+        explored.values().forEach(transitions -> transitions.forEach(ts::addTransition));
+        ts.addAllAtomicPropositions(implicit.getAtomicPropositions());
+        for (S s : ts.getStates())
+            for (P p : implicit.getLabel(s))
+                ts.addToLabel(s, p);
+        return ts;
     }
 
     @Override
@@ -709,7 +662,10 @@ public class FvmFacadeImpl implements FvmFacade {
         for (Pair<S1,S2> s : ts.getStates())
             if (!reachable.contains(s)) {
                 Set<Transition<Pair<S1, S2>, A>> removeTransition = new HashSet<>();
-                for (Transition<Pair<S1, S2>, A> t : ts.getTransitions())
+                if (ts instanceof IndexedTransitionSystem) {
+                    removeTransition.addAll(((IndexedTransitionSystem<Pair<S1, S2>, A, P>) ts).getOutgoingTransitions(s));
+                    removeTransition.addAll(((IndexedTransitionSystem<Pair<S1, S2>, A, P>) ts).getIncomingTransitions(s));
+                } else for (Transition<Pair<S1, S2>, A> t : ts.getTransitions())
                     if (s.equals(t.getFrom()) || s.equals(t.getTo()))
                         removeTransition.add(t);
                 removeTransition.forEach(ts::removeTransition);
@@ -872,6 +828,10 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts, Automaton<Saut, P> aut) {
+        if (ts instanceof IntEncodedTransitionSystem)
+            return verifyById((IntEncodedTransitionSystem<S, A, P>) ts, aut);
+        if (ts instanceof ImplicitTransitionSystem)
+            return verifyOnTheFly((ImplicitTransitionSystem<S, A, P>) ts, aut);
         TransitionSystem<Pair<S, Saut>, A, Saut> p = product(ts, aut);
         for (Pair<S, Saut> state : p.getStates())
             for (Saut label : p.getLabel(state))
@@ -880,6 +840,161 @@ public class FvmFacadeImpl implements FvmFacade {
         return new VerificationSucceeded<>();
     }
 
+    /**
+     * Checks that the label of every reachable state satisfies
+     * {@code invariant}, breadth-first and without building anything, and stops
+     * at the first state found that does not. The counterexample's prefix is
+     * then a shortest path to that state, rebuilt from the search's parent
+     * pointers, and its cycle is empty. Lazily explored systems are searched
+     * without memoizing.
+     */
+    public <S, P> VerificationResult<S> verifyInvariant(TransitionSystem<S, ?, P> ts, Predicate<Set<P>> invariant) {
+        Function<S, Set<S>> successors = unmemoizedSuccessors(ts);
+        Function<S, Set<P>> labels = unmemoizedLabels(ts);
+        Map<S, S> parents = new HashMap<>();
+        Deque<S> pending = new ArrayDeque<>();
+        for (S s0 : ts.getInitialStates()) {
+            if (!invariant.test(labels.apply(s0)))
+                return invariantViolation(parents, s0);
+            parents.put(s0, null);
+            pending.add(s0);
+        }
+        while (!pending.isEmpty()) {
+            S s = pending.poll();
+            for (S t : successors.apply(s)) {
+                if (parents.containsKey(t))
+                    continue;
+                parents.put(t, s);
+                if (!invariant.test(labels.apply(t)))
+                    return invariantViolation(parents, t);
+                pending.add(t);
+            }
+        }
+        return new VerificationSucceeded<>();
+    }
+
+    private <S> VerificationResult<S> invariantViolation(Map<S, S> parents, S bad) {
+        LinkedList<S> prefix = new LinkedList<>();
+        for (S s = bad; s != null; s = parents.get(s))
+            prefix.addFirst(s);
+        VerificationFailed<S> fail = new VerificationFailed<>();
+        fail.setPrefix(new ArrayList<>(prefix));
+        fail.setCycle(new ArrayList<>());
+        return fail;
+    }
+
+    /**
+     * Nested DFS over the product, storing in {@code visited} only fingerprints
+     * of the product states it has seen; blue and red visits get different
+     * fingerprints of the same state, so one set serves both searches. A
+     * {@link HashCompactSet} makes the search exhaustive up to fingerprint
+     * collisions. With a {@link BitstateSet} this is supertrace verification: the memory is fixed
+     * up front, and a violation found is genuine, but the search may miss some
+     * (read {@link BitstateSet#coverage()} afterwards). States are generated
+     * from the system's successor and labeling functions and never memoized, so
+     * only the ones on the search stacks are held.
+     */
+    public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts, Automaton<Saut, P> aut, LongStateSet visited) {
+        return nestedDfs(ts.getInitialStates(), unmemoizedSuccessors(ts), unmemoizedLabels(ts), aut,
+                s -> visited.add(Fingerprints.of(s)),
+                s -> visited.add(Fingerprints.mix(Fingerprints.of(s) ^ RED_SALT)));
+    }
+
+    /**
+     * Nested DFS over the product, without building it: a product state is the
+     * long {@code s * |Q| + q} of the system's state id and the automaton state's
+     * id, and the visited sets are bitsets over those.
+     */
+    private <S, P, Saut> VerificationResult<S> verifyById(IntEncodedTransitionSystem<S, ?, P> ts, Automaton<Saut, P> aut) {
+        ObjectIndex<Saut> autStates = new ObjectIndex<>();
+        aut.getTransitions().keySet().forEach(autStates::add);
+        Set<Saut> accepting = aut.getAcceptingStates();
+        long q = autStates.size();
+        NestedDfs.Lasso<Long> lasso = NestedDfs.search(new NestedDfs.Graph<Long>() {
+            @Override
+            public void initialStates(Consumer<Long> consumer) {
+                for (int s = 0; s < ts.stateCount(); s++)
+                    if (ts.isInitial(s))
+                        for (Saut s0 : aut.getInitialStates())
+                            step(s0, s, consumer);
+            }
+
+            @Override
+            public void successors(Long v, Consumer<Long> consumer) {
+                Saut from = autStates.get((int) (v % q));
+                ts.forEachSuccessor((int) (v / q), t -> step(from, t, consumer));
+            }
+
+            @Override
+            public boolean isAccepting(Long v) {
+                return accepting.contains(autStates.get((int) (v % q)));
+            }
+
+            private void step(Saut from, int t, Consumer<Long> consumer) {
+                Set<Saut> next = aut.getTransitions().get(from).get(ts.labelOf(t));
+                if (next != null)
+                    for (Saut to : next)
+                        consumer.accept(t * q + autStates.indexOf(to));
+            }
+        }, new LongBitSet()::add, new LongBitSet()::add);
+        return verificationResult(lasso, v -> ts.stateOf((int) (v / q)));
+    }
+
+    /**
+     * Nested DFS over the product of a lazily explored system and the automaton.
+     * Only the states the search reaches are expanded, so a violation can be
+     * found long before the whole system is.
+     */
+    private <S, P, Saut> VerificationResult<S> verifyOnTheFly(ImplicitTransitionSystem<S, ?, P> ts, Automaton<Saut, P> aut) {
+        return nestedDfs(ts.getInitialStates(), ts::getSuccessors, ts::getLabel, aut, new HashSet<>()::add, new HashSet<>()::add);
+    }
+
+    private <S, P, Saut> VerificationResult<S> nestedDfs(Set<S> initialStates, Function<S, ? extends Collection<S>> successors, Function<S, Set<P>> labels,
+                                                         Automaton<Saut, P> aut, NestedDfs.Visited<Object> blue, NestedDfs.Visited<Object> red) {
+        Set<Saut> accepting = aut.getAcceptingStates();
+        NestedDfs.Lasso<Pair<S, Saut>> lasso = NestedDfs.search(new NestedDfs.Graph<Pair<S, Saut>>() {
+            @Override
+            public void initialStates(Consumer<Pair<S, Saut>> consumer) {
+                for (S s : initialStates)
+                    for (Saut s0 : aut.getInitialStates())
+                        step(s0, s, consumer);
+            }
+
+            @Override
+            public void successors(Pair<S, Saut> from, Consumer<Pair<S, Saut>> consumer) {
+                for (S t : successors.apply(from.first))
+                    step(from.second, t, consumer);
+            }
+
+            @Override
+            public boolean isAccepting(Pair<S, Saut> v) {
+                return accepting.contains(v.second);
+            }
+
+            private void step(Saut from, S t, Consumer<Pair<S, Saut>> consumer) {
+                Set<Saut> next = aut.getTransitions().get(from).get(labels.apply(t));
+                if (next != null)
+                    for (Saut to : next)
+                        consumer.accept(new Pair<>(t, to));
+            }
+        }, blue, red);
+        return verificationResult(lasso, v -> v.first);
+    }
+
+    private <T, S> VerificationResult<S> verificationResult(NestedDfs.Lasso<T> lasso, Function<T, S> stateOf) {
+        if (lasso == null)
+            return new VerificationSucceeded<>();
+        VerificationFailed<S> fail = new VerificationFailed<>();
+        List<S> prefix = new ArrayList<>(), cycle = new ArrayList<>();
+        for (T v : lasso.prefix)
+            prefix.add(stateOf.apply(v));
+        for (T v : lasso.cycle)
+            cycle.add(stateOf.apply(v));
+        fail.setPrefix(prefix);
+        fail.setCycle(cycle);
+        return fail;
+    }
+
     private <S, Saut> VerificationResult<S> verificationFailed(TransitionSystem<Pair<S, Saut>, ?, Saut> p, Pair<S, Saut> state) {
         VerificationFailed<S> fail = new VerificationFailed<>();
         fail.setCycle(getFirsts(getStateCycle(p, state)));
@@ -0,0 +1,115 @@
+package il.ac.bgu.cs.fvm.impl;
+
+/**
+ * Hash compaction: a {@link LongStateSet} that keeps each state's full 64-bit
+ * fingerprint in an open-addressing table of longs, eight bytes per state
+ * (sixteen at worst, right after the table grows). Two states are confused
+ * only if their fingerprints are equal, which for {@code n} states happens
+ * with probability about {@code n^2 / 2^65}; {@link #collisionProbability()}
+ * reports it. Unlike a {@link BitstateSet} the table grows as needed, so the
+ * chance of missing a state stays negligible far past the point where keeping
+ * the states themselves would exhaust the heap.
+ */
+public class HashCompactSet implements LongStateSet {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] table; // 0 marks an empty slot; fingerprint 0 is tracked apart
+    private int mask;
+    private boolean hasZero;
+    private long size;
+
+    public HashCompactSet() {
+        this(1 << 10);
+    }
+
+    public HashCompactSet(int expectedStates) {
+        int capacity = 16;
+        while (capacity < MAX_CAPACITY && capacity < 2L * expectedStates)
+            capacity <<= 1;
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    @Override
+    public boolean add(long fingerprint) {
+        if (fingerprint == 0) {
+            if (hasZero)
+                return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        for (int i = slot(fingerprint); ; i = (i + 1) & mask) {
+            if (table[i] == fingerprint)
+                return false;
+            if (table[i] == 0) {
+                table[i] = fingerprint;
+                if (++size * 2 > table.length)
+                    grow();
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(long fingerprint) {
+        if (fingerprint == 0)
+            return hasZero;
+        for (int i = slot(fingerprint); ; i = (i + 1) & mask) {
+            if (table[i] == fingerprint)
+                return true;
+            if (table[i] == 0)
+                return false;
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    public long bytesUsed() {
+        return 8L * table.length;
+    }
+
+    /**
+     * @return the probability that two of the states stored so far share a
+     * fingerprint, so that the search took one for the other.
+     */
+    public double collisionProbability() {
+        return collisionProbability(size);
+    }
+
+    /**
+     * @return the probability that some two of {@code states} states share a
+     * fingerprint, e.g. to judge a run before starting it.
+     */
+    public static double collisionProbability(long states) {
+        double pairs = states * (states - 1.0) / 2;
+        return -Math.expm1(-Math.scalb(pairs, -64));
+    }
+
+    private int slot(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private void grow() {
+        if (table.length == MAX_CAPACITY)
+            throw new IllegalStateException("HashCompactSet is full at " + size + " states");
+        long[] old = table;
+        table = new long[old.length * 2];
+        mask = table.length - 1;
+        for (long f : old)
+            if (f != 0) {
+                int i = slot(f);
+                while (table[i] != 0)
+                    i = (i + 1) & mask;
+                table[i] = f;
+            }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d states in %d bytes, collision probability %.3g", size, bytesUsed(), collisionProbability());
+    }
+}
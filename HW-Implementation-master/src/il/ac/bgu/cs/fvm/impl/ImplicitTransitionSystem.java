@@ -0,0 +1,413 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.exceptions.FVMException;
+import il.ac.bgu.cs.fvm.exceptions.StateNotFoundException;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A transition system given by its initial states, a successor function and a
+ * labeling function, and explored only as far as it is queried. Each state is
+ * expanded (and labeled) at most once; the results are memoized.
+ * <p>
+ * Adjacency queries ({@link #getSuccessors}, {@link #getOutgoingTransitions},
+ * {@link #getLabel}) only expand the state asked about, so {@link FvmFacadeImpl}'s
+ * post and reach, and its verification, touch just the states they visit.
+ * Membership checks on {@link #getStates()} and {@link #getActions()} answer
+ * from what was discovered so far when they can. Anything that needs the whole
+ * system (iterating the states or transitions, predecessors) explores everything
+ * reachable first, which does not terminate if the state space is infinite.
+ * <p>
+ * The system is read-only; all mutators throw {@link UnsupportedOperationException}.
+ */
+public class ImplicitTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> implements IndexedTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> {
+    private String name;
+    private final Set<STATE> initialStates;
+    private final Function<STATE, Set<Transition<STATE, ACTION>>> successorFunction;
+    private final Function<STATE, Set<ATOMIC_PROPOSITION>> labelingFunction;
+
+    private final Set<STATE> discovered = new LinkedHashSet<>();
+    private final Set<ACTION> actions = new HashSet<>();
+    private final Set<ATOMIC_PROPOSITION> aps = new HashSet<>();
+    private final boolean actionsDeclared;
+    private final boolean apsDeclared;
+    private final Map<STATE, Set<Transition<STATE, ACTION>>> outgoing = new HashMap<>();
+    private final Map<STATE, Set<ATOMIC_PROPOSITION>> labels = new HashMap<>();
+    private Map<STATE, Set<Transition<STATE, ACTION>>> incoming;
+    private Set<Transition<STATE, ACTION>> transitions;
+    private boolean explored;
+
+    private ImplicitTransitionSystem(Builder<STATE, ACTION, ATOMIC_PROPOSITION> b) {
+        this.name = b.name;
+        this.initialStates = Collections.unmodifiableSet(new LinkedHashSet<>(b.initialStates));
+        this.successorFunction = b.successors;
+        this.labelingFunction = b.labels;
+        this.actionsDeclared = b.actions != null;
+        this.apsDeclared = b.aps != null;
+        if (actionsDeclared)
+            actions.addAll(b.actions);
+        if (apsDeclared)
+            aps.addAll(b.aps);
+        discovered.addAll(initialStates);
+    }
+
+    public static <S, A, P> Builder<S, A, P> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return the number of states expanded so far.
+     */
+    public int expandedStateCount() {
+        return outgoing.size();
+    }
+
+    /**
+     * The function the outgoing transitions are computed with. Calling it
+     * bypasses the memo, for searches that keep their own visited set.
+     */
+    public Function<STATE, Set<Transition<STATE, ACTION>>> successorFunction() {
+        return successorFunction;
+    }
+
+    /**
+     * The function labels are computed with; like {@link #successorFunction()}.
+     */
+    public Function<STATE, Set<ATOMIC_PROPOSITION>> labelFunction() {
+        return labelingFunction;
+    }
+
+    /* the actions and propositions given to the builder, or null if they are discovered */
+    Set<ACTION> declaredActions() {
+        return actionsDeclared ? Collections.unmodifiableSet(actions) : null;
+    }
+
+    Set<ATOMIC_PROPOSITION> declaredAtomicPropositions() {
+        return apsDeclared ? Collections.unmodifiableSet(aps) : null;
+    }
+
+    //region exploration
+
+    private Set<Transition<STATE, ACTION>> expand(STATE s) {
+        Set<Transition<STATE, ACTION>> out = outgoing.get(s);
+        if (out != null)
+            return out;
+        requireState(s);
+        out = Collections.unmodifiableSet(new LinkedHashSet<>(successorFunction.apply(s)));
+        outgoing.put(s, out);
+        for (Transition<STATE, ACTION> t : out) {
+            if (!actionsDeclared)
+                actions.add(t.getAction());
+            discovered.add(t.getTo());
+        }
+        return out;
+    }
+
+    private Set<ATOMIC_PROPOSITION> label(STATE s) {
+        Set<ATOMIC_PROPOSITION> label = labels.get(s);
+        if (label != null)
+            return label;
+        requireState(s);
+        label = Collections.unmodifiableSet(new HashSet<>(labelingFunction.apply(s)));
+        labels.put(s, label);
+        if (!apsDeclared)
+            aps.addAll(label);
+        return label;
+    }
+
+    private void requireState(Object s) {
+        if (discovered.contains(s))
+            return;
+        exploreAll();
+        if (!discovered.contains(s))
+            throw new StateNotFoundException(s);
+    }
+
+    /**
+     * Expand and label every reachable state.
+     */
+    private void exploreAll() {
+        if (explored)
+            return;
+        Deque<STATE> pending = new ArrayDeque<>(discovered);
+        Set<STATE> seen = new HashSet<>(discovered);
+        while (!pending.isEmpty()) {
+            STATE s = pending.poll();
+            for (Transition<STATE, ACTION> t : expand(s))
+                if (seen.add(t.getTo()))
+                    pending.add(t.getTo());
+            label(s);
+        }
+        explored = true;
+    }
+
+    private Map<STATE, Set<Transition<STATE, ACTION>>> incoming() {
+        if (incoming == null) {
+            exploreAll();
+            incoming = new HashMap<>();
+            for (Set<Transition<STATE, ACTION>> out : outgoing.values())
+                for (Transition<STATE, ACTION> t : out)
+                    incoming.computeIfAbsent(t.getTo(), k -> new HashSet<>()).add(t);
+        }
+        return incoming;
+    }
+
+    /**
+     * A read-only view of a set this system grows as it explores: members found
+     * so far are answered directly, everything else explores the whole system.
+     */
+    private <T> Set<T> growing(Set<T> set) {
+        return new AbstractSet<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                exploreAll();
+                return Collections.unmodifiableSet(set).iterator();
+            }
+
+            @Override
+            public int size() {
+                exploreAll();
+                return set.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (set.contains(o))
+                    return true;
+                exploreAll();
+                return set.contains(o);
+            }
+        };
+    }
+    //endregion
+
+    //region IndexedTransitionSystem
+
+    @Override
+    public Set<STATE> getSuccessors(STATE s) {
+        Set<STATE> res = new HashSet<>();
+        for (Transition<STATE, ACTION> t : expand(s))
+            res.add(t.getTo());
+        return Collections.unmodifiableSet(res);
+    }
+
+    @Override
+    public Set<STATE> getSuccessors(STATE s, ACTION a) {
+        Set<STATE> res = new HashSet<>();
+        for (Transition<STATE, ACTION> t : expand(s))
+            if (t.getAction().equals(a))
+                res.add(t.getTo());
+        return Collections.unmodifiableSet(res);
+    }
+
+    @Override
+    public Set<STATE> getPredecessors(STATE s) {
+        Set<STATE> res = new HashSet<>();
+        for (Transition<STATE, ACTION> t : getIncomingTransitions(s))
+            res.add(t.getFrom());
+        return Collections.unmodifiableSet(res);
+    }
+
+    @Override
+    public Set<STATE> getPredecessors(STATE s, ACTION a) {
+        Set<STATE> res = new HashSet<>();
+        for (Transition<STATE, ACTION> t : getIncomingTransitions(s))
+            if (t.getAction().equals(a))
+                res.add(t.getFrom());
+        return Collections.unmodifiableSet(res);
+    }
+
+    @Override
+    public Set<Transition<STATE, ACTION>> getOutgoingTransitions(STATE s) {
+        return expand(s);
+    }
+
+    @Override
+    public Set<Transition<STATE, ACTION>> getIncomingTransitions(STATE s) {
+        requireState(s);
+        return Collections.unmodifiableSet(incoming().getOrDefault(s, Collections.emptySet()));
+    }
+    //endregion
+
+    //region TransitionSystem getters
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Set<ACTION> getActions() {
+        return actionsDeclared ? Collections.unmodifiableSet(actions) : growing(actions);
+    }
+
+    @Override
+    public Set<ATOMIC_PROPOSITION> getAtomicPropositions() {
+        return apsDeclared ? Collections.unmodifiableSet(aps) : growing(aps);
+    }
+
+    @Override
+    public Set<STATE> getInitialStates() {
+        return initialStates;
+    }
+
+    @Override
+    public Set<STATE> getStates() {
+        return growing(discovered);
+    }
+
+    @Override
+    public Set<Transition<STATE, ACTION>> getTransitions() {
+        if (transitions == null) {
+            exploreAll();
+            Set<Transition<STATE, ACTION>> all = new HashSet<>();
+            outgoing.values().forEach(all::addAll);
+            transitions = Collections.unmodifiableSet(all);
+        }
+        return transitions;
+    }
+
+    @Override
+    public Set<ATOMIC_PROPOSITION> getLabel(STATE s) {
+        return label(s);
+    }
+
+    @Override
+    public Map<STATE, Set<ATOMIC_PROPOSITION>> getLabelingFunction() {
+        exploreAll();
+        return Collections.unmodifiableMap(labels);
+    }
+    //endregion
+
+    //region frozen mutators
+
+    @Override
+    public void addAction(ACTION action) {
+        throw frozen();
+    }
+
+    @Override
+    public void addInitialState(STATE state) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void addState(STATE state) {
+        throw frozen();
+    }
+
+    @Override
+    public void addTransition(Transition<STATE, ACTION> t) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void addAtomicProposition(ATOMIC_PROPOSITION p) {
+        throw frozen();
+    }
+
+    @Override
+    public void addToLabel(STATE s, ATOMIC_PROPOSITION l) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void removeAction(ACTION action) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void removeAtomicProposition(ATOMIC_PROPOSITION p) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void removeInitialState(STATE state) {
+        throw frozen();
+    }
+
+    @Override
+    public void removeLabel(STATE s, ATOMIC_PROPOSITION l) {
+        throw frozen();
+    }
+
+    @Override
+    public void removeState(STATE state) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void removeTransition(Transition<STATE, ACTION> t) {
+        throw frozen();
+    }
+
+    private UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException(getClass().getSimpleName() + " is read-only");
+    }
+    //endregion
+
+    /**
+     * Collects the parts of an {@link ImplicitTransitionSystem}. Actions and
+     * atomic propositions are optional. When declared, they are reported as
+     * given (and must cover every transition and label); otherwise the system
+     * reports the ones it meets, which means exploring everything.
+     */
+    public static class Builder<S, A, P> {
+        private String name;
+        private final Set<S> initialStates = new LinkedHashSet<>();
+        private Function<S, Set<Transition<S, A>>> successors;
+        private Function<S, Set<P>> labels = s -> Collections.emptySet();
+        private Set<A> actions;
+        private Set<P> aps;
+
+        private Builder() {
+        }
+
+        public Builder<S, A, P> name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder<S, A, P> initialStates(Collection<S> states) {
+            initialStates.addAll(states);
+            return this;
+        }
+
+        /**
+         * @param successors the outgoing transitions of a state; each one's
+         *                   {@code from} should be that state.
+         */
+        public Builder<S, A, P> successors(Function<S, Set<Transition<S, A>>> successors) {
+            this.successors = successors;
+            return this;
+        }
+
+        public Builder<S, A, P> labels(Function<S, Set<P>> labels) {
+            this.labels = labels;
+            return this;
+        }
+
+        public Builder<S, A, P> actions(Collection<A> actions) {
+            this.actions = new HashSet<>(actions);
+            return this;
+        }
+
+        public Builder<S, A, P> atomicPropositions(Collection<P> aps) {
+            this.aps = new HashSet<>(aps);
+            return this;
+        }
+
+        public ImplicitTransitionSystem<S, A, P> build() {
+            if (successors == null)
+                throw new IllegalStateException("no successor function");
+            return new ImplicitTransitionSystem<>(this);
+        }
+    }
+}
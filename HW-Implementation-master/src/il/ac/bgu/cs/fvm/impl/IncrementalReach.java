@@ -0,0 +1,192 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+
+import java.util.*;
+
+/**
+ * The reachable states of a {@link TransitionSystemImpl}, kept up to date as
+ * transitions and initial states are added and removed. Each reachable state
+ * carries its distance from the initial states, and an edit only revisits the
+ * states whose distance it changes:
+ * <ul>
+ * <li>an added transition or initial state shortens distances from its
+ * target on, breadth-first, and stops where nothing gets shorter;</li>
+ * <li>a removed one can only hurt the states that relied on it for a shortest
+ * path: those without another predecessor one step closer lose their
+ * distance, the loss spreads to their successors in the same situation, and
+ * the states it reached are then re-attached to the rest, nearest first. What
+ * cannot be re-attached is no longer reachable.</li>
+ * </ul>
+ * The tracker listens to the system until {@link #close()}d. Changes made by
+ * mutating the sets the system returns are not seen.
+ */
+public class IncrementalReach<STATE, ACTION> implements TransitionSystemListener<STATE, ACTION>, AutoCloseable {
+    private final TransitionSystemImpl<STATE, ACTION, ?> ts;
+    private final Map<STATE, Integer> distances = new HashMap<>();
+    private long statesVisited;
+
+    public IncrementalReach(TransitionSystemImpl<STATE, ACTION, ?> ts) {
+        this.ts = ts;
+        for (STATE s : ts.getInitialStates())
+            shorten(s, 0);
+        ts.addListener(this);
+    }
+
+    /**
+     * @return a read-only view of the reachable states.
+     */
+    public Set<STATE> reachable() {
+        return Collections.unmodifiableSet(distances.keySet());
+    }
+
+    public int reachableCount() {
+        return distances.size();
+    }
+
+    public boolean isReachable(STATE s) {
+        return distances.containsKey(s);
+    }
+
+    /**
+     * @return the length of a shortest path from an initial state to {@code s},
+     * or -1 if {@code s} is not reachable.
+     */
+    public int distance(STATE s) {
+        return distances.getOrDefault(s, -1);
+    }
+
+    /**
+     * @return how many times a state was (re)visited since this tracker was
+     * created, the initial search included; a measure of the work done.
+     */
+    public long statesVisited() {
+        return statesVisited;
+    }
+
+    @Override
+    public void close() {
+        ts.removeListener(this);
+    }
+
+    //region TransitionSystemListener
+
+    @Override
+    public void initialStateAdded(STATE s) {
+        shorten(s, 0);
+    }
+
+    @Override
+    public void initialStateRemoved(STATE s) {
+        if (distance(s) == 0)
+            lostSupport(s);
+    }
+
+    @Override
+    public void transitionAdded(Transition<STATE, ACTION> t) {
+        Integer from = distances.get(t.getFrom());
+        if (from != null)
+            shorten(t.getTo(), from + 1);
+    }
+
+    @Override
+    public void transitionRemoved(Transition<STATE, ACTION> t) {
+        Integer from = distances.get(t.getFrom());
+        if (from != null && distance(t.getTo()) == from + 1)
+            lostSupport(t.getTo());
+    }
+    //endregion
+
+    //region maintenance
+
+    /**
+     * Lets {@code s} be at distance {@code d} if that is shorter, and passes
+     * the improvement on.
+     */
+    private void shorten(STATE s, int d) {
+        if (distance(s) >= 0 && distance(s) <= d)
+            return;
+        distances.put(s, d);
+        Deque<STATE> pending = new ArrayDeque<>();
+        pending.add(s);
+        while (!pending.isEmpty()) {
+            STATE x = pending.poll();
+            statesVisited++;
+            int next = distances.get(x) + 1;
+            for (STATE y : ts.getSuccessors(x))
+                if (distance(y) < 0 || distance(y) > next) {
+                    distances.put(y, next);
+                    pending.add(y);
+                }
+        }
+    }
+
+    /**
+     * {@code s} may have lost the edge its distance came from.
+     */
+    private void lostSupport(STATE s) {
+        /* the states left without a shortest path, found nearest first so that
+           a state's predecessors are settled before it is */
+        Set<STATE> detached = new HashSet<>();
+        Set<STATE> queued = new HashSet<>();
+        PriorityQueue<STATE> pending = new PriorityQueue<>(Comparator.comparingInt(distances::get));
+        pending.add(s);
+        queued.add(s);
+        while (!pending.isEmpty()) {
+            STATE x = pending.poll();
+            statesVisited++;
+            if (supported(x, detached))
+                continue;
+            detached.add(x);
+            int next = distances.get(x) + 1;
+            for (STATE y : ts.getSuccessors(x))
+                if (distance(y) == next && queued.add(y))
+                    pending.add(y);
+        }
+        if (detached.isEmpty())
+            return;
+
+        /* re-attach them: each starts from its best remaining predecessor, and
+           the detached ones are then settled in order of distance */
+        detached.forEach(distances::remove);
+        Map<STATE, Integer> tentative = new HashMap<>();
+        TreeMap<Integer, List<STATE>> buckets = new TreeMap<>();
+        for (STATE x : detached) {
+            int best = ts.getInitialStates().contains(x) ? 0 : Integer.MAX_VALUE;
+            for (STATE w : ts.getPredecessors(x))
+                if (distances.containsKey(w))
+                    best = Math.min(best, distances.get(w) + 1);
+            if (best < Integer.MAX_VALUE) {
+                tentative.put(x, best);
+                buckets.computeIfAbsent(best, k -> new ArrayList<>()).add(x);
+            }
+        }
+        while (!buckets.isEmpty()) {
+            Map.Entry<Integer, List<STATE>> bucket = buckets.pollFirstEntry();
+            int d = bucket.getKey();
+            for (STATE x : bucket.getValue()) {
+                if (distances.containsKey(x) || tentative.get(x) != d)
+                    continue;
+                distances.put(x, d);
+                statesVisited++;
+                for (STATE y : ts.getSuccessors(x))
+                    if (detached.contains(y) && !distances.containsKey(y) && d + 1 < tentative.getOrDefault(y, Integer.MAX_VALUE)) {
+                        tentative.put(y, d + 1);
+                        buckets.computeIfAbsent(d + 1, k -> new ArrayList<>()).add(y);
+                    }
+            }
+        }
+    }
+
+    /* whether x keeps its distance through an initial mark or a predecessor one step closer */
+    private boolean supported(STATE x, Set<STATE> detached) {
+        int d = distances.get(x);
+        if (d == 0)
+            return ts.getInitialStates().contains(x);
+        for (STATE w : ts.getPredecessors(x))
+            if (!detached.contains(w) && distance(w) == d - 1)
+                return true;
+        return false;
+    }
+    //endregion
+}
@@ -0,0 +1,43 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A transition system that can answer adjacency queries without scanning
+ * {@link #getTransitions()}. {@link FvmFacadeImpl} uses these methods for
+ * post/pre whenever the system it gets implements this interface.
+ * <p>
+ * The returned sets are read-only views; callers that need to modify them
+ * should copy first.
+ */
+public interface IndexedTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> extends TransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> {
+    Set<STATE> getSuccessors(STATE s);
+
+    Set<STATE> getSuccessors(STATE s, ACTION a);
+
+    Set<STATE> getPredecessors(STATE s);
+
+    Set<STATE> getPredecessors(STATE s, ACTION a);
+
+    Set<Transition<STATE, ACTION>> getOutgoingTransitions(STATE s);
+
+    /**
+     * @return the successors of {@code s}, by action. By default grouped from
+     * {@link #getOutgoingTransitions}; systems indexed that way return their
+     * index.
+     */
+    default Map<ACTION, Set<STATE>> getSuccessorsByAction(STATE s) {
+        Map<ACTION, Set<STATE>> result = new HashMap<>();
+        for (Transition<STATE, ACTION> t : getOutgoingTransitions(s))
+            result.computeIfAbsent(t.getAction(), k -> new HashSet<>()).add(t.getTo());
+        return result;
+    }
+
+    Set<Transition<STATE, ACTION>> getIncomingTransitions(STATE s);
+}
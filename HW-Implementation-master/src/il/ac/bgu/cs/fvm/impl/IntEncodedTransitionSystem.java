@@ -0,0 +1,661 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.exceptions.FVMException;
+import il.ac.bgu.cs.fvm.exceptions.StateNotFoundException;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Base class for frozen transition systems whose states are numbered
+ * {@code 0..stateCount()-1} and whose edges are stored in compressed-sparse-row
+ * form (once ordered by source, once by target), with labels as fixed-width
+ * bitsets. Subclasses only decide where those arrays live; the
+ * {@link il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem} getters are lazy
+ * read-only views implemented here, and all mutators throw
+ * {@link UnsupportedOperationException}.
+ * <p>
+ * Actions and atomic propositions are few, so they are always interned on the heap.
+ */
+public abstract class IntEncodedTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> implements IndexedTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> {
+    private String name;
+    protected final ObjectIndex<ACTION> actions;
+    protected final ObjectIndex<ATOMIC_PROPOSITION> aps;
+
+    protected IntEncodedTransitionSystem(String name, ObjectIndex<ACTION> actions, ObjectIndex<ATOMIC_PROPOSITION> aps) {
+        this.name = name;
+        this.actions = actions;
+        this.aps = aps;
+    }
+
+    //region storage
+
+    public abstract int stateCount();
+
+    /**
+     * @return the id of {@code s}, or -1 if it is not a state of this system.
+     */
+    public abstract int stateId(Object s);
+
+    public abstract STATE stateOf(int id);
+
+    public abstract boolean isInitial(int id);
+
+    /* edges of state s are at [outOffset(s), outOffset(s + 1)), sorted by action */
+    protected abstract long outOffset(int s);
+
+    protected abstract int outAction(long e);
+
+    protected abstract int outTarget(long e);
+
+    protected abstract long inOffset(int s);
+
+    protected abstract int inAction(long e);
+
+    protected abstract int inSource(long e);
+
+    /* word w of the label of state s */
+    protected abstract long labelWord(int s, int w);
+
+    protected final int labelWords() {
+        return (aps.size() + 63) >>> 6;
+    }
+    //endregion
+
+    //region int-level access
+
+    public long transitionCount() {
+        return outOffset(stateCount());
+    }
+
+    public void forEachSuccessor(int s, IntConsumer consumer) {
+        for (long e = outOffset(s), end = outOffset(s + 1); e < end; e++)
+            consumer.accept(outTarget(e));
+    }
+
+    public boolean hasLabel(int s, int ap) {
+        return (labelWord(s, ap >>> 6) & (1L << ap)) != 0;
+    }
+
+    public int actionId(Object a) {
+        return actions.indexOf(a);
+    }
+
+    public int atomicPropositionId(Object p) {
+        return aps.indexOf(p);
+    }
+
+    private int requireState(Object s) {
+        int id = stateId(s);
+        if (id < 0)
+            throw new StateNotFoundException(s);
+        return id;
+    }
+
+    /**
+     * A read-only view of the states whose ids are set in {@code ids}.
+     */
+    public Set<STATE> statesOf(BitSet ids) {
+        return new AbstractSet<STATE>() {
+            @Override
+            public Iterator<STATE> iterator() {
+                return ids.stream().mapToObj(IntEncodedTransitionSystem.this::stateOf).iterator();
+            }
+
+            @Override
+            public int size() {
+                return ids.cardinality();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                int id = stateId(o);
+                return id >= 0 && ids.get(id);
+            }
+        };
+    }
+    //endregion
+
+    //region lazy views
+
+    private abstract class EdgeView {
+        abstract long offset(int s);
+
+        abstract int action(long e);
+
+        abstract int other(long e);
+    }
+
+    private final EdgeView out = new EdgeView() {
+        long offset(int s) { return outOffset(s); }
+
+        int action(long e) { return outAction(e); }
+
+        int other(long e) { return outTarget(e); }
+    };
+
+    private final EdgeView in = new EdgeView() {
+        long offset(int s) { return inOffset(s); }
+
+        int action(long e) { return inAction(e); }
+
+        int other(long e) { return inSource(e); }
+    };
+
+    private Set<STATE> neighbours(EdgeView view, int s, int action) {
+        if (action < 0)
+            return distinctNeighbours(view, s);
+        return new AbstractSet<STATE>() {
+            @Override
+            public Iterator<STATE> iterator() {
+                return new Iterator<STATE>() {
+                    long e = next(view.offset(s));
+
+                    private long next(long from) {
+                        long end = view.offset(s + 1);
+                        while (from < end && view.action(from) != action)
+                            from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return e < view.offset(s + 1);
+                    }
+
+                    @Override
+                    public STATE next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        STATE result = stateOf(view.other(e));
+                        e = next(e + 1);
+                        return result;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Iterator<STATE> it = iterator(); it.hasNext(); it.next())
+                    size++;
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                int other = stateId(o);
+                for (long e = view.offset(s), end = view.offset(s + 1); other >= 0 && e < end; e++)
+                    if (view.other(e) == other && view.action(e) == action)
+                        return true;
+                return false;
+            }
+        };
+    }
+
+    /**
+     * The neighbours of {@code s} under any action. A neighbour reached under
+     * several actions has an edge for each, so the row is sorted and
+     * deduplicated once, when the set is created.
+     */
+    private Set<STATE> distinctNeighbours(EdgeView view, int s) {
+        long start = view.offset(s);
+        int[] ids = new int[(int) (view.offset(s + 1) - start)];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = view.other(start + i);
+        Arrays.sort(ids);
+        int size = 0;
+        for (int i = 0; i < ids.length; i++)
+            if (i == 0 || ids[i] != ids[i - 1])
+                ids[size++] = ids[i];
+        int distinct = size;
+        return new AbstractSet<STATE>() {
+            @Override
+            public Iterator<STATE> iterator() {
+                return new Iterator<STATE>() {
+                    int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < distinct;
+                    }
+
+                    @Override
+                    public STATE next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        return stateOf(ids[i++]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return distinct;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                int other = stateId(o);
+                return other >= 0 && Arrays.binarySearch(ids, 0, distinct, other) >= 0;
+            }
+        };
+    }
+
+    private Set<Transition<STATE, ACTION>> transitions(EdgeView view, int from, int to) {
+        return new AbstractSet<Transition<STATE, ACTION>>() {
+            @Override
+            public Iterator<Transition<STATE, ACTION>> iterator() {
+                return new Iterator<Transition<STATE, ACTION>>() {
+                    long e = view.offset(from);
+                    int state = from;
+
+                    @Override
+                    public boolean hasNext() {
+                        return e < view.offset(to);
+                    }
+
+                    @Override
+                    public Transition<STATE, ACTION> next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        while (view.offset(state + 1) <= e)
+                            state++;
+                        STATE owner = stateOf(state), other = stateOf(view.other(e));
+                        ACTION action = actions.get(view.action(e));
+                        e++;
+                        return view == out ? new Transition<>(owner, action, other) : new Transition<>(other, action, owner);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return (int) Math.min(Integer.MAX_VALUE, view.offset(to) - view.offset(from));
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Transition))
+                    return false;
+                Transition<?, ?> t = (Transition<?, ?>) o;
+                int f = stateId(t.getFrom()), a = actions.indexOf(t.getAction()), d = stateId(t.getTo());
+                if (f < 0 || a < 0 || d < 0)
+                    return false;
+                int owner = view == out ? f : d;
+                if (owner < from || owner >= to)
+                    return false;
+                for (long e = outOffset(f), end = outOffset(f + 1); e < end; e++)
+                    if (outAction(e) == a && outTarget(e) == d)
+                        return true;
+                return false;
+            }
+        };
+    }
+
+    public Set<ATOMIC_PROPOSITION> labelOf(int s) {
+        return new AbstractSet<ATOMIC_PROPOSITION>() {
+            @Override
+            public Iterator<ATOMIC_PROPOSITION> iterator() {
+                return new Iterator<ATOMIC_PROPOSITION>() {
+                    int ap = next(0);
+
+                    private int next(int from) {
+                        while (from < aps.size() && !hasLabel(s, from))
+                            from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return ap < aps.size();
+                    }
+
+                    @Override
+                    public ATOMIC_PROPOSITION next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        ATOMIC_PROPOSITION result = aps.get(ap);
+                        ap = next(ap + 1);
+                        return result;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (int w = 0; w < labelWords(); w++)
+                    size += Long.bitCount(labelWord(s, w));
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                int ap = aps.indexOf(o);
+                return ap >= 0 && hasLabel(s, ap);
+            }
+        };
+    }
+
+    private static <T> Set<T> asSet(ObjectIndex<T> index) {
+        return new AbstractSet<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return index.asList().iterator();
+            }
+
+            @Override
+            public int size() {
+                return index.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return index.contains(o);
+            }
+        };
+    }
+    //endregion
+
+    //region IndexedTransitionSystem
+
+    @Override
+    public Set<STATE> getSuccessors(STATE s) {
+        return neighbours(out, requireState(s), -1);
+    }
+
+    @Override
+    public Set<STATE> getSuccessors(STATE s, ACTION a) {
+        int action = actions.indexOf(a);
+        return action < 0 ? Collections.emptySet() : neighbours(out, requireState(s), action);
+    }
+
+    @Override
+    public Set<STATE> getPredecessors(STATE s) {
+        return neighbours(in, requireState(s), -1);
+    }
+
+    @Override
+    public Set<STATE> getPredecessors(STATE s, ACTION a) {
+        int action = actions.indexOf(a);
+        return action < 0 ? Collections.emptySet() : neighbours(in, requireState(s), action);
+    }
+
+    @Override
+    public Set<Transition<STATE, ACTION>> getOutgoingTransitions(STATE s) {
+        int id = requireState(s);
+        return transitions(out, id, id + 1);
+    }
+
+    @Override
+    public Set<Transition<STATE, ACTION>> getIncomingTransitions(STATE s) {
+        int id = requireState(s);
+        return transitions(in, id, id + 1);
+    }
+    //endregion
+
+    //region TransitionSystem getters
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Set<ACTION> getActions() {
+        return asSet(actions);
+    }
+
+    @Override
+    public Set<ATOMIC_PROPOSITION> getAtomicPropositions() {
+        return asSet(aps);
+    }
+
+    @Override
+    public Set<ATOMIC_PROPOSITION> getLabel(STATE s) {
+        int id = stateId(s);
+        if (id < 0)
+            throw new StateNotFoundException(String.format("state %s not found (getLabel)", s));
+        return labelOf(id);
+    }
+
+    @Override
+    public Set<STATE> getInitialStates() {
+        return new AbstractSet<STATE>() {
+            @Override
+            public Iterator<STATE> iterator() {
+                return new Iterator<STATE>() {
+                    int id = next(0);
+
+                    private int next(int from) {
+                        while (from < stateCount() && !isInitial(from))
+                            from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return id < stateCount();
+                    }
+
+                    @Override
+                    public STATE next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        STATE result = stateOf(id);
+                        id = next(id + 1);
+                        return result;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (int id = 0; id < stateCount(); id++)
+                    if (isInitial(id))
+                        size++;
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                int id = stateId(o);
+                return id >= 0 && isInitial(id);
+            }
+        };
+    }
+
+    @Override
+    public Map<STATE, Set<ATOMIC_PROPOSITION>> getLabelingFunction() {
+        return new AbstractMap<STATE, Set<ATOMIC_PROPOSITION>>() {
+            @Override
+            public Set<Entry<STATE, Set<ATOMIC_PROPOSITION>>> entrySet() {
+                return new AbstractSet<Entry<STATE, Set<ATOMIC_PROPOSITION>>>() {
+                    @Override
+                    public Iterator<Entry<STATE, Set<ATOMIC_PROPOSITION>>> iterator() {
+                        return new Iterator<Entry<STATE, Set<ATOMIC_PROPOSITION>>>() {
+                            int id = 0;
+
+                            @Override
+                            public boolean hasNext() {
+                                return id < stateCount();
+                            }
+
+                            @Override
+                            public Entry<STATE, Set<ATOMIC_PROPOSITION>> next() {
+                                if (!hasNext())
+                                    throw new NoSuchElementException();
+                                Entry<STATE, Set<ATOMIC_PROPOSITION>> entry = new SimpleImmutableEntry<>(stateOf(id), labelOf(id));
+                                id++;
+                                return entry;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return stateCount();
+                    }
+                };
+            }
+
+            @Override
+            public Set<ATOMIC_PROPOSITION> get(Object key) {
+                int id = stateId(key);
+                return id < 0 ? null : labelOf(id);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return stateId(key) >= 0;
+            }
+        };
+    }
+
+    @Override
+    public Set<STATE> getStates() {
+        return new AbstractSet<STATE>() {
+            @Override
+            public Iterator<STATE> iterator() {
+                return new Iterator<STATE>() {
+                    int id = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return id < stateCount();
+                    }
+
+                    @Override
+                    public STATE next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        return stateOf(id++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return stateCount();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return stateId(o) >= 0;
+            }
+        };
+    }
+
+    @Override
+    public Set<Transition<STATE, ACTION>> getTransitions() {
+        return transitions(out, 0, stateCount());
+    }
+    //endregion
+
+    //region frozen mutators
+
+    @Override
+    public void addAction(ACTION action) {
+        throw frozen();
+    }
+
+    @Override
+    public void addInitialState(STATE state) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void addState(STATE state) {
+        throw frozen();
+    }
+
+    @Override
+    public void addTransition(Transition<STATE, ACTION> t) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void addAtomicProposition(ATOMIC_PROPOSITION p) {
+        throw frozen();
+    }
+
+    @Override
+    public void addToLabel(STATE s, ATOMIC_PROPOSITION l) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void removeAction(ACTION action) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void removeAtomicProposition(ATOMIC_PROPOSITION p) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void removeInitialState(STATE state) {
+        throw frozen();
+    }
+
+    @Override
+    public void removeLabel(STATE s, ATOMIC_PROPOSITION l) {
+        throw frozen();
+    }
+
+    @Override
+    public void removeState(STATE state) throws FVMException {
+        throw frozen();
+    }
+
+    @Override
+    public void removeTransition(Transition<STATE, ACTION> t) {
+        throw frozen();
+    }
+
+    private UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException(getClass().getSimpleName() + " is frozen");
+    }
+    //endregion
+
+    /**
+     * Sort the edges by source (counting sort), then each row by (action, target),
+     * dropping duplicates. Returns the number of distinct edges.
+     */
+    static int toCsr(int[] src, int[] act, int[] dst, int n, int[] offsets, int[] outAct, int[] outDst) {
+        int[] start = new int[n + 1];
+        for (int s : src)
+            start[s + 1]++;
+        for (int i = 0; i < n; i++)
+            start[i + 1] += start[i];
+
+        long[] keys = new long[src.length];
+        int[] fill = Arrays.copyOf(start, n);
+        for (int e = 0; e < src.length; e++)
+            keys[fill[src[e]]++] = ((long) act[e] << 32) | (dst[e] & 0xFFFFFFFFL);
+
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            offsets[i] = k;
+            Arrays.sort(keys, start[i], start[i + 1]);
+            for (int e = start[i]; e < start[i + 1]; e++) {
+                if (e > start[i] && keys[e] == keys[e - 1])
+                    continue;
+                outAct[k] = (int) (keys[e] >>> 32);
+                outDst[k] = (int) keys[e];
+                k++;
+            }
+        }
+        offsets[n] = k;
+        return k;
+    }
+}
@@ -0,0 +1,139 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.*;
+
+/**
+ * An immutable FIFO channel content: a window over an {@code int[]}, with
+ * its hash computed once. It is a {@code List<Integer>}, equal to and hashing
+ * like any list with the same elements, so it can stand in for the
+ * {@code Vector}s the evaluator stores channels as.
+ * <p>
+ * {@link #dequeue} shares the array with the queue it came from;
+ * {@link #enqueue} copies it. A queue may be bounded, in which case writing to
+ * a full queue is refused, as Promela refuses a write to a full channel.
+ */
+public final class IntQueue extends AbstractList<Integer> implements RandomAccess {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+    private static final int[] NONE = new int[0];
+
+    private final int[] buffer;
+    private final int head;
+    private final int size;
+    private final int capacity;
+    private final int hash;
+
+    private IntQueue(int[] buffer, int head, int size, int capacity) {
+        this.buffer = buffer;
+        this.head = head;
+        this.size = size;
+        this.capacity = capacity;
+        int h = 1;
+        for (int i = head; i < head + size; i++)
+            h = 31 * h + buffer[i];
+        this.hash = h;
+    }
+
+    public static IntQueue empty(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("negative capacity: " + capacity);
+        return new IntQueue(NONE, 0, 0, capacity);
+    }
+
+    public static IntQueue empty() {
+        return empty(UNBOUNDED);
+    }
+
+    public static IntQueue of(Collection<Integer> elements) {
+        return of(elements, UNBOUNDED);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are more elements than {@code capacity}.
+     */
+    public static IntQueue of(Collection<Integer> elements, int capacity) {
+        if (elements.size() > capacity)
+            throw new IllegalArgumentException(elements.size() + " messages in a channel of capacity " + capacity);
+        int[] buffer = new int[elements.size()];
+        int i = 0;
+        for (int v : elements)
+            buffer[i++] = v;
+        return new IntQueue(buffer, 0, buffer.length, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size >= capacity;
+    }
+
+    /**
+     * @return the head of the queue.
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException("empty channel");
+        return buffer[head];
+    }
+
+    /**
+     * @return this queue without its head.
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public IntQueue dequeue() {
+        if (size == 0)
+            throw new NoSuchElementException("empty channel");
+        return new IntQueue(buffer, head + 1, size - 1, capacity);
+    }
+
+    /**
+     * @return this queue with {@code value} at its tail.
+     * @throws IllegalStateException if the queue is full.
+     */
+    public IntQueue enqueue(int value) {
+        if (isFull())
+            throw new IllegalStateException("full channel, capacity " + capacity);
+        int[] written = new int[size + 1];
+        System.arraycopy(buffer, head, written, 0, size);
+        written[size] = value;
+        return new IntQueue(written, 0, size + 1, capacity);
+    }
+
+    public int getInt(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        return buffer[head + index];
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntQueue))
+            return super.equals(o);
+        IntQueue q = (IntQueue) o;
+        if (hash != q.hash || size != q.size)
+            return false;
+        for (int i = 0; i < size; i++)
+            if (buffer[head + i] != q.buffer[q.head + i])
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static il.ac.bgu.cs.fvm.impl.SetUtils.setProduct;
+import static il.ac.bgu.cs.fvm.impl.SetUtils.union;
+
+/**
+ * The interleaving of two transition systems, one state at a time. A pair
+ * moves by a step of either component on an action outside the handshake
+ * set, or by simultaneous steps of both on a handshake action, and is labeled
+ * by the union of the components' labels.
+ * <p>
+ * The components' steps are read from their successor indexes, by action
+ * ({@link IndexedTransitionSystem#getSuccessorsByAction}), when they are
+ * {@link IndexedTransitionSystem}s, and from an index built in one pass over
+ * their transitions otherwise.
+ */
+public class InterleavingSemantics<S1, S2, A, P> {
+    private final TransitionSystem<S1, A, P> ts1;
+    private final TransitionSystem<S2, A, P> ts2;
+    private final Set<A> handShakingActions;
+    private final Function<S1, Map<A, Set<S1>>> moves1;
+    private final Function<S2, Map<A, Set<S2>>> moves2;
+
+    public InterleavingSemantics(TransitionSystem<S1, A, P> ts1, TransitionSystem<S2, A, P> ts2, Set<A> handShakingActions) {
+        this.ts1 = ts1;
+        this.ts2 = ts2;
+        this.handShakingActions = handShakingActions;
+        this.moves1 = moves(ts1);
+        this.moves2 = moves(ts2);
+    }
+
+    public Set<A> actions() {
+        return union(ts1.getActions(), ts2.getActions());
+    }
+
+    public Set<P> atomicPropositions() {
+        return union(ts1.getAtomicPropositions(), ts2.getAtomicPropositions());
+    }
+
+    public Set<Pair<S1, S2>> initialStates() {
+        return setProduct(ts1.getInitialStates(), ts2.getInitialStates());
+    }
+
+    public Set<Transition<Pair<S1, S2>, A>> successors(Pair<S1, S2> s) {
+        Set<Transition<Pair<S1, S2>, A>> transitions = new HashSet<>();
+        Map<A, Set<S2>> second = moves2.apply(s.second);
+        moves1.apply(s.first).forEach((a, tos) -> {
+            if (!handShakingActions.contains(a)) {
+                for (S1 to : tos)
+                    transitions.add(new Transition<>(s, a, new Pair<>(to, s.second)));
+            } else {
+                for (S1 to1 : tos)
+                    for (S2 to2 : second.getOrDefault(a, Collections.emptySet()))
+                        transitions.add(new Transition<>(s, a, new Pair<>(to1, to2)));
+            }
+        });
+        second.forEach((a, tos) -> {
+            if (!handShakingActions.contains(a))
+                for (S2 to : tos)
+                    transitions.add(new Transition<>(s, a, new Pair<>(s.first, to)));
+        });
+        return transitions;
+    }
+
+    public Set<P> label(Pair<S1, S2> s) {
+        return union(ts1.getLabel(s.first), ts2.getLabel(s.second));
+    }
+
+    /**
+     * The successors of each state, by action.
+     */
+    private static <S, A> Function<S, Map<A, Set<S>>> moves(TransitionSystem<S, A, ?> ts) {
+        if (ts instanceof IndexedTransitionSystem)
+            return ((IndexedTransitionSystem<S, A, ?>) ts)::getSuccessorsByAction;
+        Map<S, Map<A, Set<S>>> index = new HashMap<>();
+        for (Transition<S, A> t : ts.getTransitions())
+            index.computeIfAbsent(t.getFrom(), k -> new HashMap<>()).computeIfAbsent(t.getAction(), k -> new HashSet<>()).add(t.getTo());
+        return s -> index.getOrDefault(s, Collections.emptyMap());
+    }
+}
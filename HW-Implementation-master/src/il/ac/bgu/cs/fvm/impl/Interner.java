@@ -0,0 +1,70 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * A hash-consing table: {@link #intern} maps equal values to one canonical
+ * instance, and {@link #id} numbers the canonical instances densely, so a
+ * value that recurs across many states (a memory, a location vector) is
+ * stored once and can be named by an {@code int}.
+ * <p>
+ * A value is stored in its canonical form, which must be equal to it and
+ * should be immutable, since every state that refers to it shares it. Safe to
+ * use from several threads; only new values take a lock.
+ */
+public class Interner<T> {
+    private final UnaryOperator<T> canonicalForm;
+    private final Map<T, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Object[] values = new Object[16];
+    private int size;
+
+    public Interner() {
+        this(UnaryOperator.identity());
+    }
+
+    /**
+     * @param canonicalForm the form new values are stored in, e.g. an immutable copy.
+     */
+    public Interner(UnaryOperator<T> canonicalForm) {
+        this.canonicalForm = canonicalForm;
+    }
+
+    /**
+     * @return the canonical instance equal to {@code t}; {@code null} for {@code null}.
+     */
+    public T intern(T t) {
+        return t == null ? null : get(id(t));
+    }
+
+    /**
+     * @return the id of the value equal to {@code t}, adding it if there is none.
+     */
+    public int id(T t) {
+        Integer id = ids.get(t);
+        return id != null ? id : add(t);
+    }
+
+    private synchronized int add(T t) {
+        Integer id = ids.get(t);
+        if (id != null)
+            return id;
+        if (size == values.length)
+            values = Arrays.copyOf(values, size * 2);
+        T canonical = canonicalForm.apply(t);
+        values[size] = canonical;
+        ids.put(canonical, size);
+        return size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        return (T) values[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,46 @@
+package il.ac.bgu.cs.fvm.impl;
+
+/**
+ * An exact {@link LongStateSet} for dense non-negative ids: one bit per
+ * possible id, in pages that are allocated when first written to.
+ */
+public class LongBitSet implements LongStateSet {
+    private static final int PAGE_BITS = 16; // words per page
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private long[][] pages = new long[16][];
+    private long size;
+
+    @Override
+    public boolean add(long s) {
+        long word = s >>> 6;
+        int p = (int) (word >>> PAGE_BITS);
+        if (p >= pages.length) {
+            long[][] grown = new long[Math.max(p + 1, pages.length * 2)][];
+            System.arraycopy(pages, 0, grown, 0, pages.length);
+            pages = grown;
+        }
+        if (pages[p] == null)
+            pages[p] = new long[1 << PAGE_BITS];
+        long[] page = pages[p];
+        int w = (int) (word & PAGE_MASK);
+        long bit = 1L << s;
+        if ((page[w] & bit) != 0)
+            return false;
+        page[w] |= bit;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(long s) {
+        long word = s >>> 6;
+        int p = (int) (word >>> PAGE_BITS);
+        return p < pages.length && pages[p] != null && (pages[p][(int) (word & PAGE_MASK)] & (1L << s)) != 0;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+}
@@ -0,0 +1,17 @@
+package il.ac.bgu.cs.fvm.impl;
+
+/**
+ * A set of states encoded as longs: ids, or {@link Fingerprints} of the states
+ * themselves. Lets a search trade exactness for memory by swapping the
+ * implementation.
+ */
+public interface LongStateSet {
+    /**
+     * @return {@code true} if {@code s} was not in the set before.
+     */
+    boolean add(long s);
+
+    boolean contains(long s);
+
+    long size();
+}
@@ -0,0 +1,111 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A growable byte array backed by a memory-mapped file. The file is mapped in
+ * fixed-size segments that are added on demand, so the array is not limited
+ * to 2GB and only the pages actually touched occupy memory; the OS page
+ * cache decides what stays resident.
+ * <p>
+ * ints and longs must be aligned to their size, so they never straddle two
+ * segments. The file is created, and must not exist yet; {@link #close()}
+ * deletes it.
+ */
+public class MappedRegion implements AutoCloseable {
+    private static final int SEGMENT_BITS = 26;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    public MappedRegion(Path file) {
+        this.file = file;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void ensureCapacity(long bytes) {
+        try {
+            while ((long) segments.size() << SEGMENT_BITS < bytes)
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() << SEGMENT_BITS, SEGMENT_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer segment(long pos) {
+        int i = (int) (pos >>> SEGMENT_BITS);
+        if (i >= segments.size())
+            ensureCapacity(pos + 1);
+        return segments.get(i);
+    }
+
+    public int getInt(long pos) {
+        return segment(pos).getInt((int) (pos & SEGMENT_MASK));
+    }
+
+    public void putInt(long pos, int value) {
+        segment(pos).putInt((int) (pos & SEGMENT_MASK), value);
+    }
+
+    public long getLong(long pos) {
+        return segment(pos).getLong((int) (pos & SEGMENT_MASK));
+    }
+
+    public void putLong(long pos, long value) {
+        segment(pos).putLong((int) (pos & SEGMENT_MASK), value);
+    }
+
+    public void get(long pos, byte[] dst) {
+        for (int done = 0; done < dst.length; ) {
+            int at = (int) ((pos + done) & SEGMENT_MASK);
+            int n = (int) Math.min(dst.length - done, SEGMENT_SIZE - at);
+            ByteBuffer segment = segment(pos + done).duplicate();
+            segment.position(at);
+            segment.get(dst, done, n);
+            done += n;
+        }
+    }
+
+    public void put(long pos, byte[] src) {
+        for (int done = 0; done < src.length; ) {
+            int at = (int) ((pos + done) & SEGMENT_MASK);
+            int n = (int) Math.min(src.length - done, SEGMENT_SIZE - at);
+            ByteBuffer segment = segment(pos + done).duplicate();
+            segment.position(at);
+            segment.put(src, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Drop the mapping and delete the backing file. Pages are released once the
+     * buffers are collected.
+     */
+    @Override
+    public void close() {
+        segments.clear();
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
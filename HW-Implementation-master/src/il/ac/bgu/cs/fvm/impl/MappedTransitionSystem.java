@@ -0,0 +1,417 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.exceptions.InvalidInitialStateException;
+import il.ac.bgu.cs.fvm.exceptions.InvalidLablingPairException;
+import il.ac.bgu.cs.fvm.exceptions.InvalidTransitionException;
+import il.ac.bgu.cs.fvm.exceptions.StateNotFoundException;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A frozen transition system kept off the heap. States are stored encoded
+ * (through a {@link StateCodec}) in a memory-mapped data file and found
+ * through a mapped open-addressing table of 64-bit fingerprints; edges and
+ * labels are mapped compressed-sparse-row arrays and bitsets, as in
+ * {@link CompactTransitionSystem}. Everything lives in files under a working
+ * directory, so the heap only holds actions, atomic propositions and one bit
+ * per state for the initial states.
+ * <p>
+ * State objects are decoded on every access. {@link FvmFacadeImpl#reach} and
+ * {@link FvmFacadeImpl#verifyAnOmegaRegularProperty} work on state ids for
+ * systems like this one, so they do not decode the whole state space.
+ * <p>
+ * Call {@link #close()} to delete the working files.
+ */
+public class MappedTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> extends IntEncodedTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> implements AutoCloseable {
+    private final Path dir;
+    private final StateStore<STATE> states;
+    private final BitSet initialStates;
+    private final MappedRegion outOffsets;
+    private final MappedRegion outActions;
+    private final MappedRegion outTargets;
+    private final MappedRegion inOffsets;
+    private final MappedRegion inActions;
+    private final MappedRegion inSources;
+    private final MappedRegion labels;
+    private final int labelWords;
+
+    private MappedTransitionSystem(Builder<STATE, ACTION, ATOMIC_PROPOSITION> b) {
+        super(b.name, b.actions, b.aps);
+        this.dir = b.dir;
+        this.states = b.states;
+        this.initialStates = b.initialStates;
+
+        int n = states.size();
+        this.outOffsets = b.region("out-offsets");
+        this.outActions = b.region("out-actions");
+        this.outTargets = b.region("out-targets");
+        toCsr(b, b.edges, 0, 2, n, outOffsets, outActions, outTargets);
+        this.inOffsets = b.region("in-offsets");
+        this.inActions = b.region("in-actions");
+        this.inSources = b.region("in-sources");
+        toCsr(b, b.edges, 2, 0, n, inOffsets, inActions, inSources);
+        b.edges.close();
+
+        this.labelWords = labelWords();
+        this.labels = b.region("labels");
+        labels.ensureCapacity((long) n * labelWords * 8);
+        for (long i = 0; i < b.labelCount; i++) {
+            int s = b.labelPairs.getInt(i * 8), ap = b.labelPairs.getInt(i * 8 + 4);
+            long pos = ((long) s * labelWords + (ap >>> 6)) * 8;
+            labels.putLong(pos, labels.getLong(pos) | (1L << ap));
+        }
+        b.labelPairs.close();
+    }
+
+    /**
+     * @param workingDirectory the mapped files are created in a fresh
+     *                         subdirectory of it, so several builders and
+     *                         systems can share it.
+     * @param codec            encodes the states; see {@link StateCodecs}.
+     */
+    public static <S, A, P> Builder<S, A, P> builder(Path workingDirectory, StateCodec<S> codec) {
+        return new Builder<>(workingDirectory, codec);
+    }
+
+    public static <S, A, P> MappedTransitionSystem<S, A, P> copyOf(TransitionSystem<S, A, P> ts, Path workingDirectory, StateCodec<S> codec) {
+        Builder<S, A, P> b = builder(workingDirectory, codec);
+        b.name(ts.getName());
+        ts.getStates().forEach(b::addState);
+        ts.getActions().forEach(b::addAction);
+        ts.getAtomicPropositions().forEach(b::addAtomicProposition);
+        ts.getInitialStates().forEach(b::addInitialState);
+        for (Transition<S, A> t : ts.getTransitions())
+            b.addTransition(t.getFrom(), t.getAction(), t.getTo());
+        for (S s : ts.getStates())
+            for (P p : ts.getLabel(s))
+                b.addToLabel(s, p);
+        return b.build();
+    }
+
+    /**
+     * Off-heap version of {@link IntEncodedTransitionSystem#toCsr}: count edges
+     * per row, scatter (action, other) keys into a mapped array, then sort and
+     * dedupe one row at a time on the heap.
+     */
+    private static void toCsr(Builder<?, ?, ?> b, MappedRegion edges, int ownerField, int otherField, int n,
+                              MappedRegion offsets, MappedRegion rowActions, MappedRegion rowOthers) {
+        long edgeCount = b.edgeCount;
+        MappedRegion start = b.region("tmp-start"), keys = b.region("tmp-keys");
+        start.ensureCapacity((n + 1L) * 8);
+        for (long e = 0; e < edgeCount; e++) {
+            long pos = (edges.getInt(e * 12 + ownerField * 4) + 1L) * 8;
+            start.putLong(pos, start.getLong(pos) + 1);
+        }
+        for (int i = 0; i < n; i++)
+            start.putLong((i + 1L) * 8, start.getLong((i + 1L) * 8) + start.getLong(i * 8L));
+
+        /* offsets doubles as the fill pointer while scattering */
+        offsets.ensureCapacity((n + 1L) * 8);
+        for (int i = 0; i <= n; i++)
+            offsets.putLong(i * 8L, start.getLong(i * 8L));
+        keys.ensureCapacity(edgeCount * 8);
+        for (long e = 0; e < edgeCount; e++) {
+            int owner = edges.getInt(e * 12 + ownerField * 4);
+            long at = offsets.getLong(owner * 8L);
+            offsets.putLong(owner * 8L, at + 1);
+            keys.putLong(at * 8, ((long) edges.getInt(e * 12 + 4) << 32) | (edges.getInt(e * 12 + otherField * 4) & 0xFFFFFFFFL));
+        }
+
+        long k = 0;
+        for (int i = 0; i < n; i++) {
+            offsets.putLong(i * 8L, k);
+            long from = start.getLong(i * 8L), to = start.getLong((i + 1L) * 8);
+            long[] row = new long[(int) (to - from)];
+            for (int j = 0; j < row.length; j++)
+                row[j] = keys.getLong((from + j) * 8);
+            Arrays.sort(row);
+            for (int j = 0; j < row.length; j++) {
+                if (j > 0 && row[j] == row[j - 1])
+                    continue;
+                rowActions.putInt(k * 4, (int) (row[j] >>> 32));
+                rowOthers.putInt(k * 4, (int) row[j]);
+                k++;
+            }
+        }
+        offsets.putLong(n * 8L, k);
+        start.close();
+        keys.close();
+    }
+
+    //region storage
+
+    @Override
+    public int stateCount() {
+        return states.size();
+    }
+
+    @Override
+    public int stateId(Object s) {
+        return states.indexOf(s);
+    }
+
+    @Override
+    public STATE stateOf(int id) {
+        return states.get(id);
+    }
+
+    @Override
+    public boolean isInitial(int id) {
+        return initialStates.get(id);
+    }
+
+    @Override
+    protected long outOffset(int s) {
+        return outOffsets.getLong(s * 8L);
+    }
+
+    @Override
+    protected int outAction(long e) {
+        return outActions.getInt(e * 4);
+    }
+
+    @Override
+    protected int outTarget(long e) {
+        return outTargets.getInt(e * 4);
+    }
+
+    @Override
+    protected long inOffset(int s) {
+        return inOffsets.getLong(s * 8L);
+    }
+
+    @Override
+    protected int inAction(long e) {
+        return inActions.getInt(e * 4);
+    }
+
+    @Override
+    protected int inSource(long e) {
+        return inSources.getInt(e * 4);
+    }
+
+    @Override
+    protected long labelWord(int s, int w) {
+        return labels.getLong(((long) s * labelWords + w) * 8);
+    }
+    //endregion
+
+    @Override
+    public void close() {
+        states.close();
+        for (MappedRegion r : Arrays.asList(outOffsets, outActions, outTargets, inOffsets, inActions, inSources, labels))
+            r.close();
+        try (Stream<Path> left = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) left.sorted(Comparator.reverseOrder())::iterator)
+                Files.deleteIfExists(p);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Encoded states, addressed by dense id. A state's record is its encoding
+     * prefixed by the length; lookups probe a table of fingerprints and confirm
+     * a hit by comparing the stored bytes.
+     */
+    private static class StateStore<S> implements AutoCloseable {
+        private final StateCodec<S> codec;
+        private final MappedRegion data;
+        private final MappedRegion offsets;      // long per id
+        private final MappedRegion fingerprints; // long per id
+        private final Builder<?, ?, ?> owner;
+        private MappedRegion table;              // int per slot: id + 1, 0 when empty
+        private long tableSize = 1 << 10;
+        private long dataSize;
+        private int size;
+
+        StateStore(Builder<?, ?, ?> owner, StateCodec<S> codec) {
+            this.owner = owner;
+            this.codec = codec;
+            this.data = owner.region("states");
+            this.offsets = owner.region("state-offsets");
+            this.fingerprints = owner.region("state-fingerprints");
+            this.table = owner.region("state-table");
+            table.ensureCapacity(tableSize * 4);
+        }
+
+        int add(S s) {
+            byte[] bytes = StateCodecs.encode(codec, s);
+            long fp = Fingerprints.of(bytes);
+            long slot = find(bytes, fp);
+            int id = table.getInt(slot * 4) - 1;
+            if (id >= 0)
+                return id;
+
+            id = size++;
+            offsets.putLong(id * 8L, dataSize);
+            fingerprints.putLong(id * 8L, fp);
+            data.ensureCapacity(dataSize + 4 + bytes.length);
+            data.putInt(dataSize, bytes.length);
+            data.put(dataSize + 4, bytes);
+            dataSize += 4 + bytes.length + ((-(4 + bytes.length)) & 3);
+            table.putInt(slot * 4, id + 1);
+            if (size * 2L > tableSize)
+                rehash();
+            return id;
+        }
+
+        @SuppressWarnings("unchecked")
+        int indexOf(Object o) {
+            byte[] bytes;
+            try {
+                bytes = StateCodecs.encode(codec, (S) o);
+            } catch (ClassCastException | UncheckedIOException | NullPointerException e) {
+                return -1;
+            }
+            return table.getInt(find(bytes, Fingerprints.of(bytes)) * 4) - 1;
+        }
+
+        S get(int id) {
+            if (id < 0 || id >= size)
+                throw new StateNotFoundException(id);
+            return StateCodecs.decode(codec, record(id));
+        }
+
+        int size() {
+            return size;
+        }
+
+        private byte[] record(int id) {
+            long at = offsets.getLong(id * 8L);
+            byte[] bytes = new byte[data.getInt(at)];
+            data.get(at + 4, bytes);
+            return bytes;
+        }
+
+        /* the slot holding the state encoded as bytes, or the empty slot where it belongs */
+        private long find(byte[] bytes, long fp) {
+            long mask = tableSize - 1;
+            for (long slot = fp & mask; ; slot = (slot + 1) & mask) {
+                int id = table.getInt(slot * 4) - 1;
+                if (id < 0 || (fingerprints.getLong(id * 8L) == fp && Arrays.equals(record(id), bytes)))
+                    return slot;
+            }
+        }
+
+        private void rehash() {
+            MappedRegion old = table;
+            tableSize *= 2;
+            table = owner.region("state-table-" + tableSize);
+            table.ensureCapacity(tableSize * 4);
+            long mask = tableSize - 1;
+            for (int id = 0; id < size; id++) {
+                long slot = fingerprints.getLong(id * 8L) & mask;
+                while (table.getInt(slot * 4) != 0)
+                    slot = (slot + 1) & mask;
+                table.putInt(slot * 4, id + 1);
+            }
+            old.close();
+        }
+
+        @Override
+        public void close() {
+            for (MappedRegion r : Arrays.asList(data, offsets, fingerprints, table))
+                r.close();
+        }
+    }
+
+    /**
+     * Collects the parts of a {@link MappedTransitionSystem}. Edges and labels
+     * are appended to mapped scratch files and only sorted into place by
+     * {@link #build()}.
+     */
+    public static class Builder<S, A, P> {
+        private final Path dir;
+        private String name;
+        private final StateStore<S> states;
+        private final ObjectIndex<A> actions = new ObjectIndex<>();
+        private final ObjectIndex<P> aps = new ObjectIndex<>();
+        private final BitSet initialStates = new BitSet();
+        private final MappedRegion edges;      // (from, action, to) int triples
+        private final MappedRegion labelPairs; // (state, ap) int pairs
+        private long edgeCount;
+        private long labelCount;
+
+        private Builder(Path workingDirectory, StateCodec<S> codec) {
+            try {
+                this.dir = Files.createTempDirectory(Files.createDirectories(workingDirectory), "mts");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.states = new StateStore<>(this, codec);
+            this.edges = region("tmp-edges");
+            this.labelPairs = region("tmp-labels");
+        }
+
+        private MappedRegion region(String file) {
+            return new MappedRegion(dir.resolve(file + ".bin"));
+        }
+
+        /**
+         * @return the directory of this builder's files, deleted with the
+         * built system.
+         */
+        Path directory() {
+            return dir;
+        }
+
+        public Builder<S, A, P> name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public int addState(S s) {
+            return states.add(s);
+        }
+
+        public int addAction(A a) {
+            return actions.add(a);
+        }
+
+        public int addAtomicProposition(P p) {
+            return aps.add(p);
+        }
+
+        public void addInitialState(S s) {
+            int id = states.indexOf(s);
+            if (id < 0)
+                throw new InvalidInitialStateException(s);
+            initialStates.set(id);
+        }
+
+        public void addTransition(S from, A action, S to) {
+            int f = states.indexOf(from), a = actions.indexOf(action), t = states.indexOf(to);
+            if (f < 0 || a < 0 || t < 0)
+                throw new InvalidTransitionException(new Transition<>(from, action, to));
+            edges.putInt(edgeCount * 12, f);
+            edges.putInt(edgeCount * 12 + 4, a);
+            edges.putInt(edgeCount * 12 + 8, t);
+            edgeCount++;
+        }
+
+        public void addToLabel(S s, P p) {
+            int id = states.indexOf(s), ap = aps.indexOf(p);
+            if (id < 0)
+                throw new StateNotFoundException(s);
+            if (ap < 0)
+                throw new InvalidLablingPairException(s, p);
+            labelPairs.putInt(labelCount * 8, id);
+            labelPairs.putInt(labelCount * 8 + 4, ap);
+            labelCount++;
+        }
+
+        public MappedTransitionSystem<S, A, P> build() {
+            return new MappedTransitionSystem<>(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable program-graph memory backed by a {@link Frame}: ints and
+ * {@link IntQueue} channels stored by slot, with the map's hash computed
+ * once. It is equal to, and hashes like, any {@code Map} holding the same
+ * variables, so it can stand in for the {@code HashMap} memories of the
+ * states of a program graph or a channel system.
+ * <p>
+ * Lookups read the frame directly. Iterating over the entries, which only
+ * labeling does, builds them once and keeps them.
+ */
+public final class MemoryState extends AbstractMap<String, Object> {
+    private final Frame frame;
+    private final int hash;
+    private volatile Map<String, Object> entries;
+
+    MemoryState(Frame frame) {
+        this.frame = frame;
+        this.hash = frame.mapHashCode();
+    }
+
+    public static MemoryState of(VariableLayout layout, Map<String, Object> memory) {
+        if (memory instanceof MemoryState && ((MemoryState) memory).frame.layout() == layout)
+            return (MemoryState) memory;
+        return new MemoryState(Frame.of(layout, memory));
+    }
+
+    public Frame frame() {
+        return frame;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String))
+            return null;
+        int slot = frame.layout().slotOf((String) key);
+        if (slot >= 0) {
+            if (frame.isDefined(slot))
+                return frame.get(slot);
+            IntQueue q = frame.channel(slot);
+            if (q != null)
+                return q;
+        }
+        return frame.other(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null || entries().containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return entries().entrySet();
+    }
+
+    private Map<String, Object> entries() {
+        Map<String, Object> e = entries;
+        if (e == null)
+            entries = e = Collections.unmodifiableMap(frame.toMap());
+        return e;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (o instanceof MemoryState && ((MemoryState) o).frame.layout() == frame.layout())
+            return hash == o.hashCode() && frame.contentEquals(((MemoryState) o).frame);
+        return super.equals(o);
+    }
+}
@@ -0,0 +1,182 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.nanopromela.Evaluator;
+import il.ac.bgu.cs.fvm.nanopromela.NanoPromelaParser.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compiles NanoPromela parse trees into trees of closures over a
+ * {@link Frame}. The tree is walked and its variable names are resolved to
+ * {@link VariableLayout} slots once, at compile time; running the result does
+ * no parse-tree dispatch, no name lookups and no boxing.
+ * <p>
+ * The compiled code means exactly what {@link Evaluator} does, quirks
+ * included: {@code ^} is exclusive or, {@code a % p} is {@code (a + p) % p},
+ * unset variables and channels read as 0 and as empty, and the statements the
+ * evaluator does not run ({@code if}, {@code do}, sequences) yield
+ * {@code null}, as does a read from an empty channel and a write to a full
+ * one (channels are unbounded unless a memory holds a bounded
+ * {@link IntQueue}).
+ */
+public class NanoPromelaCompiler {
+
+    private NanoPromelaCompiler() {
+    }
+
+    public static ToIntFunction<Frame> compile(IntexprContext c, VariableLayout layout) {
+        if (c.POW() != null) {
+            ToIntFunction<Frame> l = compile(c.intexpr(0), layout);
+            ToIntFunction<Frame> r = compile(c.intexpr(1), layout);
+            return f -> l.applyAsInt(f) ^ r.applyAsInt(f);
+        }
+
+        if (c.MINUS() != null && c.intexpr().size() == 1) {
+            ToIntFunction<Frame> e = compile(c.intexpr(0), layout);
+            return f -> -e.applyAsInt(f);
+        }
+
+        if (c.MULT() != null || c.DIV() != null || c.MOD() != null || c.PLUS() != null || c.MINUS() != null) {
+            ToIntFunction<Frame> l = compile(c.intexpr(0), layout);
+            ToIntFunction<Frame> r = compile(c.intexpr(1), layout);
+            if (c.MULT() != null)
+                return f -> l.applyAsInt(f) * r.applyAsInt(f);
+            if (c.DIV() != null)
+                return f -> l.applyAsInt(f) / r.applyAsInt(f);
+            if (c.MOD() != null)
+                return f -> {
+                    int p = r.applyAsInt(f);
+                    return (l.applyAsInt(f) + p) % p;
+                };
+            if (c.PLUS() != null)
+                return f -> l.applyAsInt(f) + r.applyAsInt(f);
+            return f -> l.applyAsInt(f) - r.applyAsInt(f);
+        }
+
+        if (c.INT() != null) {
+            int value = Integer.parseInt(c.getText());
+            return f -> value;
+        }
+
+        if (c.VARNAME() != null) {
+            int slot = layout.slot(c.getText());
+            return f -> f.get(slot);
+        }
+
+        if (c.CHANNAME() != null) {
+            int slot = layout.slot(c.CHANNAME().getText());
+            return f -> f.channelSize(slot);
+        }
+
+        return compile(c.intexpr(0), layout);
+    }
+
+    public static Predicate<Frame> compile(BoolexprContext c, VariableLayout layout) {
+        if (c.NOT() != null)
+            return compile(c.boolexpr(0), layout).negate();
+
+        if (c.AND() != null)
+            return compile(c.boolexpr(0), layout).and(compile(c.boolexpr(1), layout));
+
+        if (c.OR() != null)
+            return compile(c.boolexpr(0), layout).or(compile(c.boolexpr(1), layout));
+
+        if (c.LTEQ() != null || c.GTEQ() != null || c.LT() != null || c.GT() != null || c.EQ() != null || c.NEQ() != null) {
+            ToIntFunction<Frame> l = compile(c.intexpr(0), layout);
+            ToIntFunction<Frame> r = compile(c.intexpr(1), layout);
+            if (c.LTEQ() != null)
+                return f -> l.applyAsInt(f) <= r.applyAsInt(f);
+            if (c.GTEQ() != null)
+                return f -> l.applyAsInt(f) >= r.applyAsInt(f);
+            if (c.LT() != null)
+                return f -> l.applyAsInt(f) < r.applyAsInt(f);
+            if (c.GT() != null)
+                return f -> l.applyAsInt(f) > r.applyAsInt(f);
+            if (c.EQ() != null)
+                return f -> l.applyAsInt(f) == r.applyAsInt(f);
+            return f -> l.applyAsInt(f) != r.applyAsInt(f);
+        }
+
+        if (c.TRUE() != null)
+            return f -> true;
+
+        if (c.FALSE() != null)
+            return f -> false;
+
+        return compile(c.boolexpr(0), layout);
+    }
+
+    /**
+     * @return a function from a frame to the frame after the statement, or to
+     * {@code null} where the evaluator returns {@code null}.
+     */
+    public static UnaryOperator<Frame> compile(StmtContext c, VariableLayout layout) {
+        if (c.skipstmt() != null)
+            return f -> f;
+
+        if (c.assstmt() != null) {
+            int slot = layout.slot(c.assstmt().VARNAME().getText());
+            ToIntFunction<Frame> e = compile(c.assstmt().intexpr(), layout);
+            return f -> {
+                int value = e.applyAsInt(f);
+                Frame next = f.copy();
+                next.set(slot, value);
+                return next;
+            };
+        }
+
+        if (c.atomicstmt() != null) {
+            AtomicstmtContext atomic = c.atomicstmt();
+            int n = atomic.VARNAME().size();
+            int[] slots = new int[n];
+            List<ToIntFunction<Frame>> es = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                slots[i] = layout.slot(atomic.VARNAME(i).getText());
+                es.add(compile(atomic.intexpr(i), layout));
+            }
+            // every right-hand side reads the memory from before the statement
+            return f -> {
+                Frame next = f.copy();
+                for (int i = 0; i < n; i++)
+                    next.set(slots[i], es.get(i).applyAsInt(f));
+                return next;
+            };
+        }
+
+        if (c.chanwritestmt() != null) {
+            int slot = layout.slot(c.chanwritestmt().CHANNAME().getText());
+            int capacity = layout.capacity(slot);
+            ToIntFunction<Frame> e = compile(c.chanwritestmt().intexpr(), layout);
+            return f -> {
+                IntQueue q = f.channel(slot);
+                if (q == null)
+                    q = IntQueue.empty(capacity);
+                else if (q.isFull())
+                    return null;
+                Frame next = f.copy();
+                next.setChannel(slot, q.enqueue(e.applyAsInt(f)));
+                return next;
+            };
+        }
+
+        if (c.chanreadstmt() != null) {
+            int channel = layout.slot(c.chanreadstmt().CHANNAME().getText());
+            int variable = layout.slot(c.chanreadstmt().VARNAME().getText());
+            return f -> {
+                IntQueue q = f.channel(channel);
+                if (q == null || q.isEmpty())
+                    return null;
+                Frame next = f.copy();
+                next.setChannel(channel, q.dequeue());
+                next.set(variable, q.peek());
+                return next;
+            };
+        }
+
+        return f -> null;
+    }
+}
@@ -0,0 +1,173 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Nested depth-first search for an accepting cycle (Courcoubetis, Vardi,
+ * Wolper and Yannakakis). The graph is only queried for successors, so it can
+ * be explicit or generated on the fly, and both searches are iterative, so deep
+ * state spaces do not overflow the call stack.
+ * <p>
+ * The visited sets are supplied by the caller and only ever added to, so they
+ * need not keep the states: a bitset over ids, or a set of fingerprints, works
+ * as well as a {@link java.util.HashSet}. Only the states on the two stacks
+ * are held.
+ */
+public class NestedDfs {
+
+    public interface Graph<T> {
+        void initialStates(Consumer<T> consumer);
+
+        void successors(T s, Consumer<T> consumer);
+
+        boolean isAccepting(T s);
+    }
+
+    public interface Visited<T> {
+        /**
+         * @return {@code true} if {@code s} was not visited before.
+         */
+        boolean add(T s);
+    }
+
+    /**
+     * A counterexample in the shape {@link il.ac.bgu.cs.fvm.verification.VerificationFailed}
+     * expects: {@code prefix} starts at an initial state and its last state
+     * leads to the first state of {@code cycle}, whose last state leads back to
+     * its first. When the accepting state is itself initial, the prefix is just
+     * that state and the cycle ends with it instead.
+     */
+    public static class Lasso<T> {
+        public final List<T> prefix;
+        public final List<T> cycle;
+
+        Lasso(List<T> prefix, List<T> cycle) {
+            this.prefix = prefix;
+            this.cycle = cycle;
+        }
+    }
+
+    /**
+     * @return an accepting lasso, or {@code null} if every accepting state is
+     * off any cycle reachable from the initial states.
+     */
+    public static <T> Lasso<T> search(Graph<T> g, Visited<? super T> blue, Visited<? super T> red) {
+        List<T> initial = new ArrayList<>();
+        g.initialStates(initial::add);
+        Stack<T> stack = new Stack<>(), inner = new Stack<>();
+        for (T s0 : initial) {
+            if (!blue.add(s0))
+                continue;
+            stack.push(g, s0);
+            while (stack.depth > 0) {
+                if (stack.hasNext()) {
+                    T t = stack.next();
+                    if (blue.add(t))
+                        stack.push(g, t);
+                    continue;
+                }
+                T s = stack.top();
+                if (g.isAccepting(s)) {
+                    List<T> cycle = cycleThrough(g, s, red, inner);
+                    if (cycle != null)
+                        return lasso(stack.states(0, stack.depth - 1), s, cycle);
+                }
+                stack.pop();
+            }
+        }
+        return null;
+    }
+
+    /* the states r1..rm of a cycle seed, r1, .., rm, seed, or null */
+    private static <T> List<T> cycleThrough(Graph<T> g, T seed, Visited<? super T> red, Stack<T> stack) {
+        stack.push(g, seed);
+        while (stack.depth > 0) {
+            if (!stack.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            T t = stack.next();
+            if (t.equals(seed)) {
+                List<T> path = stack.states(1, stack.depth);
+                stack.clear();
+                return path;
+            }
+            if (red.add(t))
+                stack.push(g, t);
+        }
+        return null;
+    }
+
+    private static <T> Lasso<T> lasso(List<T> prefix, T seed, List<T> rest) {
+        List<T> cycle = new ArrayList<>(rest.size() + 1);
+        if (prefix.isEmpty()) {
+            cycle.addAll(rest);
+            cycle.add(seed);
+            prefix.add(seed);
+            return new Lasso<>(prefix, cycle);
+        }
+        cycle.add(seed);
+        cycle.addAll(rest);
+        return new Lasso<>(prefix, cycle);
+    }
+
+    /**
+     * The DFS stack. Each frame keeps its successors in a shared buffer, from
+     * {@code starts[i]} to the start of the frame above it.
+     */
+    private static class Stack<T> {
+        Object[] states = new Object[64];
+        int[] starts = new int[64];
+        int[] cursors = new int[64];
+        final ArrayList<T> successors = new ArrayList<>();
+        int depth;
+
+        void push(Graph<T> g, T s) {
+            if (depth == states.length) {
+                states = Arrays.copyOf(states, depth * 2);
+                starts = Arrays.copyOf(starts, depth * 2);
+                cursors = Arrays.copyOf(cursors, depth * 2);
+            }
+            states[depth] = s;
+            starts[depth] = cursors[depth] = successors.size();
+            depth++;
+            g.successors(s, successors::add);
+        }
+
+        boolean hasNext() {
+            return cursors[depth - 1] < successors.size();
+        }
+
+        T next() {
+            return successors.get(cursors[depth - 1]++);
+        }
+
+        @SuppressWarnings("unchecked")
+        T top() {
+            return (T) states[depth - 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> states(int from, int to) {
+            List<T> list = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++)
+                list.add((T) states[i]);
+            return list;
+        }
+
+        void pop() {
+            int start = starts[--depth];
+            successors.subList(start, successors.size()).clear();
+            states[depth] = null;
+        }
+
+        void clear() {
+            Arrays.fill(states, 0, depth, null);
+            depth = 0;
+            successors.clear();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns dense ids {@code 0..size()-1} to distinct objects, in insertion order.
+ * Lookups go through an open-addressing table of ids rather than a
+ * {@code HashMap<T, Integer>}, so an entry costs a reference and two ints
+ * instead of a map entry plus a boxed integer.
+ */
+public class ObjectIndex<T> {
+    private Object[] objects;
+    private int[] hashes;
+    private int[] table; // id + 1, 0 marks an empty slot
+    private int size;
+
+    public ObjectIndex() {
+        this(16);
+    }
+
+    public ObjectIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        this.objects = new Object[Math.max(4, expectedSize)];
+        this.hashes = new int[objects.length];
+        this.table = new int[capacity];
+    }
+
+    /**
+     * @return the id of {@code o}, adding it if it was not indexed yet.
+     */
+    public int add(T o) {
+        int h = spread(o.hashCode());
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (id < 0) {
+                id = append(o, h);
+                table[i] = id + 1;
+                if (size * 2 > table.length)
+                    rehash(table.length * 2);
+                return id;
+            }
+            if (hashes[id] == h && objects[id].equals(o))
+                return id;
+        }
+    }
+
+    /**
+     * @return the id of {@code o}, or -1 if it was never added.
+     */
+    public int indexOf(Object o) {
+        if (o == null)
+            return -1;
+        int h = spread(o.hashCode());
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (id < 0)
+                return -1;
+            if (hashes[id] == h && objects[id].equals(o))
+                return id;
+        }
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException(String.valueOf(id));
+        return (T) objects[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a read-only list view, where the element at position i has id i.
+     */
+    public List<T> asList() {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                return ObjectIndex.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return ObjectIndex.this.contains(o);
+            }
+
+            @Override
+            public int indexOf(Object o) {
+                return ObjectIndex.this.indexOf(o);
+            }
+        };
+    }
+
+    private int append(T o, int h) {
+        if (size == objects.length) {
+            objects = Arrays.copyOf(objects, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        objects[size] = o;
+        hashes[size] = h;
+        return size++;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (table[i] != 0)
+                i = (i + 1) & mask;
+            table[i] = id + 1;
+        }
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
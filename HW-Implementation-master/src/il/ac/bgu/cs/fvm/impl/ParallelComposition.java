@@ -0,0 +1,195 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+
+import java.util.*;
+
+/**
+ * The interleaving of any number of transition systems, one state at a time,
+ * with the meaning nesting {@link FvmFacadeImpl#interleave(TransitionSystem, TransitionSystem, Set)}
+ * would give: a state moves by a step of one component on an action outside
+ * the handshake set, or by simultaneous steps of all components on a handshake
+ * action, and is labeled by the union of the components' labels.
+ * <p>
+ * A state is a {@link StateVector}: one {@code int} per component, naming the
+ * component's state by its position in that component's {@link ObjectIndex},
+ * and read as the {@code List} of the component states. The components' steps
+ * are indexed once, by state id and action, up front.
+ */
+public class ParallelComposition<S, A, P> {
+    private final List<TransitionSystem<S, A, P>> systems;
+    private final Set<A> handShakingActions;
+    private final List<ObjectIndex<S>> states = new ArrayList<>();
+    /* moves.get(i).get(s): the successors of component i's state s, by action */
+    private final List<List<Map<A, int[]>>> moves = new ArrayList<>();
+
+    public ParallelComposition(List<TransitionSystem<S, A, P>> systems, Set<A> handShakingActions) {
+        this.systems = new ArrayList<>(systems);
+        this.handShakingActions = handShakingActions;
+        for (TransitionSystem<S, A, P> ts : this.systems) {
+            ObjectIndex<S> index = new ObjectIndex<>(ts.getStates().size());
+            ts.getStates().forEach(index::add);
+            states.add(index);
+            moves.add(moves(ts, index));
+        }
+    }
+
+    private static <S, A> List<Map<A, int[]>> moves(TransitionSystem<S, A, ?> ts, ObjectIndex<S> index) {
+        List<Map<A, List<Integer>>> lists = new ArrayList<>(Collections.nCopies(index.size(), null));
+        for (Transition<S, A> t : ts.getTransitions()) {
+            int from = index.indexOf(t.getFrom());
+            if (lists.get(from) == null)
+                lists.set(from, new HashMap<>());
+            lists.get(from).computeIfAbsent(t.getAction(), k -> new ArrayList<>()).add(index.indexOf(t.getTo()));
+        }
+        List<Map<A, int[]>> result = new ArrayList<>(index.size());
+        for (Map<A, List<Integer>> byActionLists : lists) {
+            if (byActionLists == null) {
+                result.add(Collections.emptyMap());
+                continue;
+            }
+            Map<A, int[]> byAction = new HashMap<>();
+            byActionLists.forEach((a, tos) -> byAction.put(a, tos.stream().mapToInt(Integer::intValue).toArray()));
+            result.add(byAction);
+        }
+        return result;
+    }
+
+    public Set<A> actions() {
+        Set<A> actions = new HashSet<>();
+        systems.forEach(ts -> actions.addAll(ts.getActions()));
+        return actions;
+    }
+
+    public Set<P> atomicPropositions() {
+        Set<P> aps = new HashSet<>();
+        systems.forEach(ts -> aps.addAll(ts.getAtomicPropositions()));
+        return aps;
+    }
+
+    public Set<List<S>> initialStates() {
+        Set<List<S>> initialStates = new HashSet<>();
+        initialStates(0, new int[systems.size()], initialStates);
+        return initialStates;
+    }
+
+    private void initialStates(int i, int[] ids, Set<List<S>> result) {
+        if (i == ids.length) {
+            result.add(new StateVector(ids.clone()));
+            return;
+        }
+        for (S s : systems.get(i).getInitialStates()) {
+            ids[i] = states.get(i).indexOf(s);
+            initialStates(i + 1, ids, result);
+        }
+    }
+
+    public Set<Transition<List<S>, A>> successors(List<S> s) {
+        StateVector v = vector(s);
+        Set<Transition<List<S>, A>> transitions = new HashSet<>();
+        for (int i = 0; i < v.ids.length; i++) {
+            int component = i;
+            moves.get(i).get(v.ids[i]).forEach((a, tos) -> {
+                if (handShakingActions.contains(a))
+                    return;
+                for (int to : tos) {
+                    int[] next = v.ids.clone();
+                    next[component] = to;
+                    transitions.add(new Transition<>(v, a, new StateVector(next)));
+                }
+            });
+        }
+        for (A a : handShakingActions)
+            handShake(v, a, 0, v.ids.clone(), transitions);
+        return transitions;
+    }
+
+    private void handShake(StateVector from, A a, int i, int[] next, Set<Transition<List<S>, A>> result) {
+        if (i == next.length) {
+            result.add(new Transition<>(from, a, new StateVector(next.clone())));
+            return;
+        }
+        int[] tos = moves.get(i).get(from.ids[i]).get(a);
+        if (tos == null)
+            return;
+        for (int to : tos) {
+            next[i] = to;
+            handShake(from, a, i + 1, next, result);
+        }
+    }
+
+    public Set<P> label(List<S> s) {
+        StateVector v = vector(s);
+        Set<P> label = new HashSet<>();
+        for (int i = 0; i < v.ids.length; i++)
+            label.addAll(systems.get(i).getLabel(states.get(i).get(v.ids[i])));
+        return label;
+    }
+
+    private StateVector vector(List<S> s) {
+        if (s instanceof ParallelComposition<?, ?, ?>.StateVector) {
+            ParallelComposition<?, ?, ?>.StateVector v = (ParallelComposition<?, ?, ?>.StateVector) s;
+            if (v.owner() == this)
+                return new StateVector(v.ids, v.hash);
+        }
+        if (s.size() != systems.size())
+            throw new IllegalArgumentException("not a state of a composition of " + systems.size() + " systems: " + s);
+        int[] ids = new int[s.size()];
+        for (int i = 0; i < ids.length; i++)
+            if ((ids[i] = states.get(i).indexOf(s.get(i))) < 0)
+                throw new IllegalArgumentException("not a state of component " + i + ": " + s.get(i));
+        return new StateVector(ids);
+    }
+
+    /**
+     * A read-only list of component states, stored as their ids. Equal to any
+     * list with the same elements.
+     */
+    public final class StateVector extends AbstractList<S> {
+        private final int[] ids;
+        private final int hash;
+
+        private StateVector(int[] ids) {
+            this.ids = ids;
+            int h = 1;
+            for (int i = 0; i < ids.length; i++)
+                h = 31 * h + states.get(i).get(ids[i]).hashCode();
+            this.hash = h;
+        }
+
+        private StateVector(int[] ids, int hash) {
+            this.ids = ids;
+            this.hash = hash;
+        }
+
+        private ParallelComposition<S, A, P> owner() {
+            return ParallelComposition.this;
+        }
+
+        @Override
+        public S get(int index) {
+            return states.get(index).get(ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof ParallelComposition<?, ?, ?>.StateVector) {
+                ParallelComposition<?, ?, ?>.StateVector v = (ParallelComposition<?, ?, ?>.StateVector) o;
+                if (v.owner() == owner())
+                    return hash == v.hash && Arrays.equals(ids, v.ids);
+            }
+            return super.equals(o);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.nanopromela.NanoPromelaLexer;
+import il.ac.bgu.cs.fvm.nanopromela.NanoPromelaParser;
+import il.ac.bgu.cs.fvm.programgraph.ThrowingErrorListener;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe map from source strings to what they parse to, so
+ * each distinct string goes through ANTLR once. When more than
+ * {@code capacity} strings are cached the oldest ones are dropped.
+ * <p>
+ * Parse trees are only read after they are built, so one cached tree can be
+ * evaluated by several threads at once. A {@code null} result (a string that
+ * is not of the expected form) is cached like any other; strings on which the
+ * parser throws are not, and the exception reaches the caller every time.
+ */
+public class ParseCache<T> {
+    public static final int DEFAULT_CAPACITY = 4096;
+    /* null results are stored as NONE, since the map takes no null values */
+    private static final Object NONE = new Object();
+
+    private final int capacity;
+    private final Function<String, T> parser;
+    private final Map<String, Object> parsed = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ParseCache(int capacity, Function<String, T> parser) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.parser = parser;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(String source) {
+        Object cached = parsed.get(source);
+        if (cached != null) {
+            hits.increment();
+            return cached == NONE ? null : (T) cached;
+        }
+        misses.increment();
+        T tree = parser.apply(source);
+        if (parsed.putIfAbsent(source, tree == null ? NONE : tree) == null) {
+            insertionOrder.add(source);
+            while (parsed.size() > capacity) {
+                String oldest = insertionOrder.poll();
+                if (oldest == null)
+                    break;
+                parsed.remove(oldest);
+            }
+        }
+        return tree;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return parsed.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * A NanoPromela parser for {@code source}, reporting syntax errors as
+     * exceptions, like the parser-based definitions do.
+     */
+    public static NanoPromelaParser parser(String source) {
+        NanoPromelaLexer lexer = new NanoPromelaLexer(new ANTLRInputStream(source));
+        NanoPromelaParser parser = new NanoPromelaParser(new CommonTokenStream(lexer));
+
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new ThrowingErrorListener());
+
+        parser.removeErrorListeners();
+        parser.addErrorListener(new ThrowingErrorListener());
+        return parser;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseCache{size=" + size() + "/" + capacity + ", hits=" + hits() + ", misses=" + misses() + "}";
+    }
+}
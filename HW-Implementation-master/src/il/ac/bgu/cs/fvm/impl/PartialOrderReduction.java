@@ -0,0 +1,156 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.*;
+
+/**
+ * Static ample-set analysis of a channel system, for a partial-order reduced
+ * exploration. In a state where program graph {@code i} is at a location
+ * {@link #isCandidate candidate} for it, the enabled steps of graph {@code i}
+ * alone may replace the full expansion (if there are any). A location is a
+ * candidate when
+ * <ul>
+ * <li>none of its transitions is a handshake;</li>
+ * <li>none of its transitions conflicts with any transition of the other
+ * graphs, judged by the variables and channels each reads and writes
+ * (conflict: one writes what the other reads or writes), so no other step can
+ * enable, disable or change the outcome of a step from it (C1);</li>
+ * <li>none of its transitions writes an observed variable or moves between
+ * different locations one of which is observed (C2);</li>
+ * <li>none of its transitions is a back edge of a depth-first search of its
+ * graph. Every cycle of states moves some graph around a cycle of its own,
+ * through a back edge, and the state that takes it is then fully expanded
+ * (C3, statically).</li>
+ * </ul>
+ * This preserves deadlocks and the LTL properties without next over the
+ * observed names. With nothing observed, only deadlocks are kept. The
+ * footprints are those of the {@link CompiledTransition}s; transitions whose
+ * action or condition does not parse conflict with everything.
+ */
+public class PartialOrderReduction<L, A> {
+    private final List<Map<L, Boolean>> candidates = new ArrayList<>();
+
+    /**
+     * @param compiled the transitions of each process of {@code cs}, as
+     *                 {@link ChannelSystemSemantics} compiled them.
+     */
+    PartialOrderReduction(ChannelSystem<L, A> cs, List<List<CompiledTransition<L, A>>> compiled, Set<String> observed) {
+        List<ProgramGraph<L, A>> pgs = cs.getProgramGraphs();
+        List<Footprint> whole = new ArrayList<>();
+        for (List<CompiledTransition<L, A>> transitions : compiled) {
+            Footprint f = new Footprint();
+            transitions.forEach(f::add);
+            whole.add(f);
+        }
+
+        for (int i = 0; i < pgs.size(); i++) {
+            ProgramGraph<L, A> pg = pgs.get(i);
+            Footprint others = new Footprint();
+            for (int j = 0; j < pgs.size(); j++)
+                if (j != i)
+                    others.add(whole.get(j));
+
+            Map<L, List<CompiledTransition<L, A>>> outgoing = new HashMap<>();
+            for (CompiledTransition<L, A> c : compiled.get(i))
+                outgoing.computeIfAbsent(c.transition.getFrom(), k -> new ArrayList<>()).add(c);
+            Set<L> closingCycles = backEdgeSources(pg, outgoing);
+
+            Map<L, Boolean> candidate = new HashMap<>();
+            for (L l : pg.getLocations()) {
+                boolean ok = !closingCycles.contains(l);
+                for (CompiledTransition<L, A> c : outgoing.getOrDefault(l, Collections.emptyList())) {
+                    if (!ok)
+                        break;
+                    Footprint f = new Footprint();
+                    f.add(c);
+                    ok = !c.kind.isHandShake()
+                            && !f.conflictsWith(others)
+                            && isInvisible(c.transition, f, observed);
+                }
+                candidate.put(l, ok);
+            }
+            candidates.add(candidate);
+        }
+    }
+
+    public boolean isCandidate(int process, L location) {
+        return candidates.get(process).getOrDefault(location, false);
+    }
+
+    private static <L> boolean isInvisible(PGTransition<L, ?> t, Footprint f, Set<String> observed) {
+        if (f.global || !Collections.disjoint(f.writes, observed))
+            return false;
+        return t.getFrom().equals(t.getTo())
+                || !observed.contains(t.getFrom().toString()) && !observed.contains(t.getTo().toString());
+    }
+
+    /**
+     * @return the locations with an outgoing transition that closes a cycle
+     * in a depth-first search from the initial locations (then from the rest).
+     */
+    private static <L, A> Set<L> backEdgeSources(ProgramGraph<L, A> pg, Map<L, List<CompiledTransition<L, A>>> outgoing) {
+        Set<L> result = new HashSet<>();
+        Set<L> onStack = new HashSet<>();
+        Set<L> done = new HashSet<>();
+        List<L> roots = new ArrayList<>(pg.getInitialLocations());
+        roots.addAll(pg.getLocations());
+        for (L root : roots) {
+            if (done.contains(root) || onStack.contains(root))
+                continue;
+            Deque<Pair<L, Iterator<CompiledTransition<L, A>>>> stack = new ArrayDeque<>();
+            stack.push(new Pair<>(root, outgoing.getOrDefault(root, Collections.emptyList()).iterator()));
+            onStack.add(root);
+            while (!stack.isEmpty()) {
+                Pair<L, Iterator<CompiledTransition<L, A>>> top = stack.peek();
+                if (!top.second.hasNext()) {
+                    stack.pop();
+                    onStack.remove(top.first);
+                    done.add(top.first);
+                    continue;
+                }
+                L to = top.second.next().transition.getTo();
+                if (onStack.contains(to)) {
+                    result.add(top.first);
+                } else if (!done.contains(to)) {
+                    stack.push(new Pair<>(to, outgoing.getOrDefault(to, Collections.emptyList()).iterator()));
+                    onStack.add(to);
+                }
+            }
+        }
+        return result;
+    }
+
+    //region footprints
+
+    /**
+     * The variables and channels a transition reads and writes.
+     */
+    private static class Footprint {
+        final Set<String> reads = new HashSet<>();
+        final Set<String> writes = new HashSet<>();
+        boolean global;
+
+        void add(CompiledTransition<?, ?> c) {
+            reads.addAll(c.reads);
+            writes.addAll(c.writes);
+            global |= c.global;
+        }
+
+        void add(Footprint f) {
+            reads.addAll(f.reads);
+            writes.addAll(f.writes);
+            global |= f.global;
+        }
+
+        boolean conflictsWith(Footprint f) {
+            return global || f.global
+                    || !Collections.disjoint(writes, f.reads) || !Collections.disjoint(writes, f.writes)
+                    || !Collections.disjoint(reads, f.writes);
+        }
+    }
+    //endregion
+}
@@ -0,0 +1,93 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.programgraph.ActionDef;
+import il.ac.bgu.cs.fvm.programgraph.ConditionDef;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.*;
+
+import static il.ac.bgu.cs.fvm.impl.SetUtils.setProduct;
+
+/**
+ * The transition system of a program graph, one state at a time. A state is a
+ * pair (location, memory); a transition of the graph whose condition holds in
+ * the memory leads to its target location and the memory after its action.
+ * A state is labeled by its location and by "{@code x = v}" for each variable.
+ * <p>
+ * Plain parser-based action and condition definitions are swapped for their
+ * compiled equivalents over one {@link VariableLayout}, and every action and
+ * condition of the graph is compiled up front, which gives each variable its
+ * slot. Memories are then {@link MemoryState}s, {@link Interner interned} so
+ * that states with equal memories share one.
+ */
+public class ProgramGraphSemantics<L, A> {
+    private final Set<ActionDef> actionDefs;
+    private final Set<ConditionDef> conditionDefs;
+    private final VariableLayout layout = new VariableLayout();
+    private final Interner<Map<String, Object>> memories = new Interner<>(m -> MemoryState.of(layout, m));
+    private final Set<Pair<L, Map<String, Object>>> initialStates;
+    private final Map<L, Set<PGTransition<L, A>>> transitionsOfStates = new HashMap<>();
+
+    public ProgramGraphSemantics(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs) {
+        this.actionDefs = CompiledActDef.compiled(actionDefs, layout);
+        this.conditionDefs = CompiledCondDef.compiled(conditionDefs, layout);
+        prepare(pg);
+
+        // region initial memory mapping
+        Set<Map<String, Object>> initialMemoryMaps = new HashSet<>();
+        for (List<String> initList : pg.getInitalizations()) {
+            Map<String, Object> mem = new HashMap<>();
+            for (String init : initList)
+                mem = ActionDef.effect(this.actionDefs, mem, init);
+            initialMemoryMaps.add(memories.intern(mem));
+        }
+        if (initialMemoryMaps.isEmpty())
+            initialMemoryMaps.add(memories.intern(new HashMap<>()));
+        // endregion
+        this.initialStates = setProduct(pg.getInitialLocations(), initialMemoryMaps);
+
+        for (L l : pg.getLocations())
+            transitionsOfStates.put(l, new HashSet<>());
+        for (PGTransition<L, A> t : pg.getTransitions())
+            transitionsOfStates.get(t.getFrom()).add(t);
+    }
+
+    private void prepare(ProgramGraph<L, A> pg) {
+        for (ActionDef ad : actionDefs)
+            if (ad instanceof CompiledActDef) {
+                CompiledActDef compiled = (CompiledActDef) ad;
+                pg.getInitalizations().forEach(inits -> inits.forEach(compiled::prepare));
+                for (PGTransition<L, A> t : pg.getTransitions())
+                    if (t.getAction() instanceof String)
+                        compiled.prepare((String) t.getAction());
+            }
+        for (ConditionDef cd : conditionDefs)
+            if (cd instanceof CompiledCondDef)
+                pg.getTransitions().forEach(t -> ((CompiledCondDef) cd).prepare(t.getCondition()));
+    }
+
+    public Set<Pair<L, Map<String, Object>>> initialStates() {
+        return initialStates;
+    }
+
+    public Set<Transition<Pair<L, Map<String, Object>>, A>> successors(Pair<L, Map<String, Object>> s) {
+        Set<Transition<Pair<L, Map<String, Object>>, A>> transitions = new HashSet<>();
+        for (PGTransition<L, A> t : transitionsOfStates.getOrDefault(s.first, Collections.emptySet()))
+            if (ConditionDef.evaluate(conditionDefs, s.second, t.getCondition())) {
+                Pair<L, Map<String, Object>> dst = new Pair<>(t.getTo(), memories.intern(ActionDef.effect(actionDefs, s.second, t.getAction())));
+                transitions.add(new Transition<>(s, t.getAction(), dst));
+            }
+        return transitions;
+    }
+
+    public Set<String> label(Pair<L, Map<String, Object>> s) {
+        Set<String> label = new HashSet<>();
+        label.add(s.first.toString());
+        for (Map.Entry<String, Object> entry : s.second.entrySet())
+            label.add(String.format("%s = %s", entry.getKey(), entry.getValue().toString()));
+        return label;
+    }
+}
@@ -0,0 +1,18 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts states to and from bytes, for the stores that keep states outside
+ * the heap. Encodings must be canonical: equal states have to produce equal
+ * bytes, since the stores identify states by their encoding.
+ *
+ * @see StateCodecs
+ */
+public interface StateCodec<S> {
+    void write(S s, DataOutput out) throws IOException;
+
+    S read(DataInput in) throws IOException;
+}
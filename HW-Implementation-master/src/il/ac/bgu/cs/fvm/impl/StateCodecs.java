@@ -0,0 +1,195 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * {@link StateCodec}s for the state shapes the facade produces, e.g.
+ * {@code pair(list(string()), memory())} for channel-system states.
+ */
+public class StateCodecs {
+    private static final byte INT = 0, BOOLEAN = 1, STRING = 2, QUEUE = 3;
+
+    public static StateCodec<Integer> integer() {
+        return new StateCodec<Integer>() {
+            @Override
+            public void write(Integer s, DataOutput out) throws IOException {
+                out.writeInt(s);
+            }
+
+            @Override
+            public Integer read(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+    }
+
+    public static StateCodec<String> string() {
+        return new StateCodec<String>() {
+            @Override
+            public void write(String s, DataOutput out) throws IOException {
+                out.writeUTF(s);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                return in.readUTF();
+            }
+        };
+    }
+
+    public static <A, B> StateCodec<Pair<A, B>> pair(StateCodec<A> first, StateCodec<B> second) {
+        return new StateCodec<Pair<A, B>>() {
+            @Override
+            public void write(Pair<A, B> s, DataOutput out) throws IOException {
+                first.write(s.first, out);
+                second.write(s.second, out);
+            }
+
+            @Override
+            public Pair<A, B> read(DataInput in) throws IOException {
+                A a = first.read(in);
+                return new Pair<>(a, second.read(in));
+            }
+        };
+    }
+
+    public static <T> StateCodec<List<T>> list(StateCodec<T> element) {
+        return new StateCodec<List<T>>() {
+            @Override
+            public void write(List<T> s, DataOutput out) throws IOException {
+                out.writeInt(s.size());
+                for (T t : s)
+                    element.write(t, out);
+            }
+
+            @Override
+            public List<T> read(DataInput in) throws IOException {
+                int size = in.readInt();
+                List<T> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++)
+                    list.add(element.read(in));
+                return list;
+            }
+        };
+    }
+
+    /**
+     * Variable evaluations, as used by program graphs ({@code Integer} values and
+     * {@code List<Integer>} channel contents) and circuits ({@code Boolean} values).
+     * Entries are written in key order so the encoding is canonical.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> StateCodec<Map<String, V>> memory() {
+        return new StateCodec<Map<String, V>>() {
+            @Override
+            public void write(Map<String, V> s, DataOutput out) throws IOException {
+                out.writeInt(s.size());
+                for (Map.Entry<String, V> e : new TreeMap<>(s).entrySet()) {
+                    out.writeUTF(e.getKey());
+                    Object v = e.getValue();
+                    if (v instanceof Integer) {
+                        out.writeByte(INT);
+                        out.writeInt((Integer) v);
+                    } else if (v instanceof Boolean) {
+                        out.writeByte(BOOLEAN);
+                        out.writeBoolean((Boolean) v);
+                    } else if (v instanceof String) {
+                        out.writeByte(STRING);
+                        out.writeUTF((String) v);
+                    } else if (v instanceof List) {
+                        out.writeByte(QUEUE);
+                        List<Integer> q = (List<Integer>) v;
+                        out.writeInt(q.size());
+                        for (int x : q)
+                            out.writeInt(x);
+                    } else throw new IOException("Cannot encode value " + v + " of " + e.getKey());
+                }
+            }
+
+            @Override
+            public Map<String, V> read(DataInput in) throws IOException {
+                int size = in.readInt();
+                Map<String, Object> map = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String key = in.readUTF();
+                    byte tag = in.readByte();
+                    switch (tag) {
+                        case INT:
+                            map.put(key, in.readInt());
+                            break;
+                        case BOOLEAN:
+                            map.put(key, in.readBoolean());
+                            break;
+                        case STRING:
+                            map.put(key, in.readUTF());
+                            break;
+                        case QUEUE:
+                            int length = in.readInt();
+                            Vector<Integer> q = new Vector<>(length);
+                            for (int j = 0; j < length; j++)
+                                q.add(in.readInt());
+                            map.put(key, q);
+                            break;
+                        default:
+                            throw new IOException("Unknown value tag " + tag);
+                    }
+                }
+                return (Map<String, V>) map;
+            }
+        };
+    }
+
+    /**
+     * Falls back on Java serialization. Only canonical if the state's
+     * serialized form is (e.g. not for hash-based collections).
+     */
+    public static <S extends Serializable> StateCodec<S> serializable() {
+        return new StateCodec<S>() {
+            @Override
+            public void write(S s, DataOutput out) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                    oos.writeObject(s);
+                }
+                out.writeInt(bytes.size());
+                out.write(bytes.toByteArray());
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public S read(DataInput in) throws IOException {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (S) ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Encodes {@code s} to a fresh byte array.
+     */
+    public static <S> byte[] encode(StateCodec<S> codec, S s) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            codec.write(s, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static <S> S decode(StateCodec<S> codec, byte[] bytes) {
+        try {
+            return codec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
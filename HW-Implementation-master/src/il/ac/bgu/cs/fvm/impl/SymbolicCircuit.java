@@ -0,0 +1,271 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.circuits.Circuit;
+import il.ac.bgu.cs.fvm.impl.bdd.Bdd;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.*;
+
+/**
+ * The transition system of {@link FvmFacadeImpl#transitionSystemFromCircuit},
+ * represented with BDDs instead of enumerated states. State variables are the
+ * inputs and the registers; each has a current copy (even BDD variables) and a
+ * next copy (odd), interleaved so renaming between them keeps the order.
+ * <p>
+ * {@link Circuit} is a black box, so the next-register and output functions are
+ * built by evaluating it once on every (inputs, registers) assignment and
+ * reducing the results bottom-up. That step is exponential in the number of
+ * ports and registers, so circuits with more than {@link #MAX_VARIABLES} input
+ * ports and registers together are rejected; everything after it (image
+ * computation, the reachability fixpoint, invariant checks) works on the BDDs
+ * and never enumerates states.
+ */
+public class SymbolicCircuit {
+    /* 2^20 evaluations of the circuit, about a million */
+    public static final int MAX_VARIABLES = 20;
+
+    private final Bdd bdd;
+    private final List<String> inputs;
+    private final List<String> registers;
+    private final List<String> outputs;
+    private final int[] current;
+    private final int[] next;
+    private final boolean[] isCurrent;
+    private final boolean[] isNext;
+    private final int[] toCurrent;
+    private final int[] toNext;
+    private final Map<String, Integer> outputFunctions = new HashMap<>();
+    private final int initialStates;
+    private final int transitionRelation;
+    /* rings.get(i): the states first reached after i steps */
+    private List<Integer> rings;
+    private int reachableStates = -1;
+
+    /**
+     * @throws IllegalArgumentException if {@code c} has more than
+     *                                  {@link #MAX_VARIABLES} input ports and
+     *                                  registers.
+     */
+    public SymbolicCircuit(Circuit c) {
+        this.inputs = sorted(c.getInputPortNames());
+        this.registers = sorted(c.getRegisterNames());
+        this.outputs = sorted(c.getOutputPortNames());
+        int n = inputs.size() + registers.size();
+        if (n > MAX_VARIABLES)
+            throw new IllegalArgumentException(inputs.size() + " input ports and " + registers.size()
+                    + " registers: tabulating the circuit takes 2^" + n + " evaluations, more than 2^" + MAX_VARIABLES);
+        this.bdd = new Bdd(2 * n);
+        this.current = new int[n];
+        this.next = new int[n];
+        this.isCurrent = new boolean[2 * n];
+        this.isNext = new boolean[2 * n];
+        this.toCurrent = new int[2 * n];
+        this.toNext = new int[2 * n];
+        for (int k = 0; k < n; k++) {
+            current[k] = 2 * k;
+            next[k] = 2 * k + 1;
+            isCurrent[current[k]] = isNext[next[k]] = true;
+            toCurrent[current[k]] = toCurrent[next[k]] = current[k];
+            toNext[current[k]] = toNext[next[k]] = next[k];
+        }
+
+        int[] functions = tabulate(c, 0, new boolean[n]);
+        int relation = Bdd.TRUE;
+        for (int j = registers.size() - 1; j >= 0; j--)
+            relation = bdd.and(bdd.biimp(bdd.var(next[inputs.size() + j]), functions[j]), relation);
+        this.transitionRelation = relation;
+        for (int k = 0; k < outputs.size(); k++)
+            outputFunctions.put(outputs.get(k), functions[registers.size() + k]);
+
+        int init = Bdd.TRUE;
+        for (int j = registers.size() - 1; j >= 0; j--)
+            init = bdd.and(bdd.nvar(current[inputs.size() + j]), init);
+        this.initialStates = init;
+    }
+
+    private static List<String> sorted(Set<String> names) {
+        List<String> list = new ArrayList<>(names);
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * The next-register functions followed by the output functions, over the
+     * current variables from {@code k} on, with the earlier ones fixed to
+     * {@code values[0..k)}.
+     */
+    private int[] tabulate(Circuit c, int k, boolean[] values) {
+        if (k == values.length) {
+            Pair<Map<String, Boolean>, Map<String, Boolean>> s = decode(values);
+            Map<String, Boolean> nextRegisters = c.updateRegisters(s.first, s.second);
+            Map<String, Boolean> outputValues = c.computeOutputs(s.first, s.second);
+            int[] leaves = new int[registers.size() + outputs.size()];
+            for (int j = 0; j < registers.size(); j++)
+                leaves[j] = nextRegisters.get(registers.get(j)) ? Bdd.TRUE : Bdd.FALSE;
+            for (int o = 0; o < outputs.size(); o++)
+                leaves[registers.size() + o] = outputValues.get(outputs.get(o)) ? Bdd.TRUE : Bdd.FALSE;
+            return leaves;
+        }
+        values[k] = false;
+        int[] lo = tabulate(c, k + 1, values);
+        values[k] = true;
+        int[] hi = tabulate(c, k + 1, values);
+        int[] result = new int[lo.length];
+        for (int i = 0; i < result.length; i++)
+            result[i] = bdd.ite(bdd.var(current[k]), hi[i], lo[i]);
+        return result;
+    }
+
+    //region encoding
+
+    private Pair<Map<String, Boolean>, Map<String, Boolean>> decode(boolean[] values) {
+        Map<String, Boolean> in = new HashMap<>(), regs = new HashMap<>();
+        for (int i = 0; i < inputs.size(); i++)
+            in.put(inputs.get(i), values[i]);
+        for (int j = 0; j < registers.size(); j++)
+            regs.put(registers.get(j), values[inputs.size() + j]);
+        return new Pair<>(in, regs);
+    }
+
+    /* values of all BDD variables, with the current copies taken from s; null if s is not a state */
+    private boolean[] encode(Object o) {
+        if (!(o instanceof Pair))
+            return null;
+        Pair<?, ?> s = (Pair<?, ?>) o;
+        if (!(s.first instanceof Map) || !(s.second instanceof Map))
+            return null;
+        Map<?, ?> in = (Map<?, ?>) s.first, regs = (Map<?, ?>) s.second;
+        if (in.size() != inputs.size() || regs.size() != registers.size())
+            return null;
+        boolean[] values = new boolean[bdd.varCount()];
+        for (int i = 0; i < inputs.size(); i++) {
+            Object v = in.get(inputs.get(i));
+            if (!(v instanceof Boolean))
+                return null;
+            values[current[i]] = (Boolean) v;
+        }
+        for (int j = 0; j < registers.size(); j++) {
+            Object v = regs.get(registers.get(j));
+            if (!(v instanceof Boolean))
+                return null;
+            values[current[inputs.size() + j]] = (Boolean) v;
+        }
+        return values;
+    }
+    //endregion
+
+    //region symbolic operations
+
+    public Bdd bdd() {
+        return bdd;
+    }
+
+    public int initialStates() {
+        return initialStates;
+    }
+
+    public int transitionRelation() {
+        return transitionRelation;
+    }
+
+    /**
+     * The states that hold {@code name} in their label: an input port or
+     * register that is on, or an output port the circuit drives high.
+     */
+    public int atomicProposition(String name) {
+        int i = inputs.indexOf(name);
+        if (i >= 0)
+            return bdd.var(current[i]);
+        int j = registers.indexOf(name);
+        if (j >= 0)
+            return bdd.var(current[inputs.size() + j]);
+        Integer output = outputFunctions.get(name);
+        if (output != null)
+            return output;
+        throw new IllegalArgumentException("No port or register named " + name);
+    }
+
+    /**
+     * The successors of the states in {@code states}.
+     */
+    public int image(int states) {
+        return bdd.replace(bdd.relProd(states, transitionRelation, isCurrent), toCurrent);
+    }
+
+    /**
+     * The predecessors of the states in {@code states}.
+     */
+    public int preImage(int states) {
+        return bdd.relProd(bdd.replace(states, toNext), transitionRelation, isNext);
+    }
+
+    /**
+     * The least fixpoint of {@code R = init \/ image(R)}, computed once.
+     */
+    public int reachableStates() {
+        if (reachableStates < 0) {
+            rings = new ArrayList<>();
+            int reached = initialStates, frontier = initialStates;
+            while (frontier != Bdd.FALSE) {
+                rings.add(frontier);
+                frontier = bdd.and(image(frontier), bdd.not(reached));
+                reached = bdd.or(reached, frontier);
+            }
+            reachableStates = reached;
+        }
+        return reachableStates;
+    }
+
+    public double reachableStateCount() {
+        return bdd.satCount(reachableStates(), current);
+    }
+
+    /**
+     * @return {@code null} if every reachable state satisfies {@code invariant};
+     * otherwise a shortest path from an initial state to one that does not.
+     */
+    public List<Pair<Map<String, Boolean>, Map<String, Boolean>>> invariantViolation(int invariant) {
+        reachableStates();
+        int bad = bdd.not(invariant);
+        for (int i = 0; i < rings.size(); i++) {
+            boolean[] last = bdd.anySat(bdd.and(rings.get(i), bad), current);
+            if (last == null)
+                continue;
+            LinkedList<Pair<Map<String, Boolean>, Map<String, Boolean>>> path = new LinkedList<>();
+            path.addFirst(decode(last));
+            for (int k = i - 1; k >= 0; k--) {
+                last = bdd.anySat(bdd.and(rings.get(k), preImage(bdd.cube(current, last))), current);
+                path.addFirst(decode(last));
+            }
+            return path;
+        }
+        return null;
+    }
+
+    /**
+     * A read-only view of the states in {@code states}. Membership and size are
+     * answered from the BDD; only iterating enumerates.
+     */
+    public Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> statesOf(int states) {
+        return new AbstractSet<Pair<Map<String, Boolean>, Map<String, Boolean>>>() {
+            @Override
+            public Iterator<Pair<Map<String, Boolean>, Map<String, Boolean>>> iterator() {
+                List<Pair<Map<String, Boolean>, Map<String, Boolean>>> all = new ArrayList<>();
+                bdd.forEachSat(states, current, values -> all.add(decode(values)));
+                return Collections.unmodifiableList(all).iterator();
+            }
+
+            @Override
+            public int size() {
+                return (int) Math.min(Integer.MAX_VALUE, bdd.satCount(states, current));
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                boolean[] values = encode(o);
+                return values != null && bdd.eval(states, values);
+            }
+        };
+    }
+    //endregion
+}
@@ -0,0 +1,220 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.*;
+
+/**
+ * Groups of interchangeable processes of a channel system, for a
+ * symmetry-reduced exploration. Processes of a group run the same program
+ * graph (same locations, same transitions up to their local variables); each
+ * has its own local variables, listed in the same order for every member, and
+ * the variables not listed are shared. A state is replaced by its
+ * {@link #canonical canonical} representative: the members of each group
+ * sorted by their location and local values, so the states that differ only by
+ * a permutation of interchangeable processes are explored once.
+ * <p>
+ * The reduction is sound when permuting the members really is a symmetry of
+ * the system: no shared variable, channel or transition refers to a particular
+ * member. Only the location sets are checked. With that,
+ * {@link #reductionFactor} tells how many states of the full system each
+ * explored state stands for.
+ */
+public class Symmetry<L> {
+    private final List<int[]> groups = new ArrayList<>();
+    private final List<List<List<String>>> locals = new ArrayList<>();
+    private final Set<Integer> grouped = new HashSet<>();
+    /* per group, a position for each location, set by validate to order locations with equal names */
+    private final List<Map<L, Integer>> locationRanks = new ArrayList<>();
+
+    /**
+     * Declares interchangeable processes without local variables.
+     */
+    public Symmetry<L> group(Integer... processes) {
+        List<List<String>> none = new ArrayList<>();
+        for (Integer ignored : processes)
+            none.add(Collections.emptyList());
+        return group(Arrays.asList(processes), none);
+    }
+
+    /**
+     * @param processes      indices of interchangeable program graphs.
+     * @param localVariables the local variables of each of {@code processes},
+     *                       corresponding ones at the same positions.
+     */
+    public Symmetry<L> group(List<Integer> processes, List<List<String>> localVariables) {
+        if (processes.size() != localVariables.size())
+            throw new IllegalArgumentException("expected local variables for each of " + processes);
+        for (List<String> l : localVariables)
+            if (l.size() != localVariables.get(0).size())
+                throw new IllegalArgumentException("processes of a group must have as many local variables: " + localVariables);
+        for (int p : processes)
+            if (!grouped.add(p))
+                throw new IllegalArgumentException("process " + p + " is already in a group");
+        groups.add(processes.stream().mapToInt(Integer::intValue).toArray());
+        locals.add(new ArrayList<>(localVariables));
+        return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a grouped process is not in
+     *                                  {@code cs}, or has other locations than
+     *                                  the rest of its group.
+     */
+    void validate(ChannelSystem<L, ?> cs) {
+        int n = cs.getProgramGraphs().size();
+        for (int[] group : groups)
+            for (int p : group) {
+                if (p < 0 || p >= n)
+                    throw new IllegalArgumentException("no process " + p + " among " + n);
+                if (!cs.getProgramGraphs().get(p).getLocations().equals(cs.getProgramGraphs().get(group[0]).getLocations()))
+                    throw new IllegalArgumentException("processes " + group[0] + " and " + p + " are not interchangeable: different locations");
+            }
+
+        locationRanks.clear();
+        for (int[] group : groups) {
+            Map<L, Integer> ranks = new HashMap<>();
+            for (L l : cs.getProgramGraphs().get(group[0]).getLocations())
+                ranks.put(l, ranks.size());
+            locationRanks.add(ranks);
+        }
+    }
+
+    /**
+     * @return the representative of the state: within every group, the
+     * members' locations and local values sorted.
+     */
+    public Pair<List<L>, Map<String, Object>> canonical(List<L> locations, Map<String, Object> memory) {
+        List<L> canonicalLocations = locations;
+        Map<String, Object> canonicalMemory = memory;
+        for (int g = 0; g < groups.size(); g++) {
+            int[] group = groups.get(g);
+            List<Member<L>> members = members(g, locations, memory);
+            List<Member<L>> sorted = new ArrayList<>(members);
+            sorted.sort(null);
+            if (sorted.equals(members))
+                continue;
+            if (canonicalLocations == locations)
+                canonicalLocations = new ArrayList<>(locations);
+            if (canonicalMemory == memory && !locals.get(g).get(0).isEmpty())
+                canonicalMemory = new HashMap<>(memory);
+            for (int m = 0; m < group.length; m++) {
+                canonicalLocations.set(group[m], sorted.get(m).location);
+                List<String> names = locals.get(g).get(m);
+                for (int v = 0; v < names.size(); v++) {
+                    Object value = sorted.get(m).values[v];
+                    if (value == null)
+                        canonicalMemory.remove(names.get(v));
+                    else
+                        canonicalMemory.put(names.get(v), value);
+                }
+            }
+        }
+        return new Pair<>(canonicalLocations, canonicalMemory);
+    }
+
+    /**
+     * @return how many states the permutations of the groups make of
+     * {@code state}.
+     */
+    public double orbitSize(Pair<List<L>, Map<String, Object>> state) {
+        double size = 1;
+        for (int g = 0; g < groups.size(); g++) {
+            List<Member<L>> members = members(g, state.first, state.second);
+            members.sort(null);
+            size *= factorial(members.size());
+            int run = 1;
+            for (int m = 1; m <= members.size(); m++) {
+                if (m < members.size() && members.get(m).equals(members.get(m - 1))) {
+                    run++;
+                } else {
+                    size /= factorial(run);
+                    run = 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of states {@code states}, canonical representatives,
+     * stand for, per state.
+     */
+    public double reductionFactor(Collection<? extends Pair<List<L>, Map<String, Object>>> states) {
+        if (states.isEmpty())
+            return 1;
+        double full = 0;
+        for (Pair<List<L>, Map<String, Object>> s : states)
+            full += orbitSize(s);
+        return full / states.size();
+    }
+
+    private List<Member<L>> members(int g, List<L> locations, Map<String, Object> memory) {
+        int[] group = groups.get(g);
+        Map<L, Integer> ranks = g < locationRanks.size() ? locationRanks.get(g) : Collections.emptyMap();
+        List<Member<L>> members = new ArrayList<>(group.length);
+        for (int m = 0; m < group.length; m++) {
+            List<String> names = locals.get(g).get(m);
+            Object[] values = new Object[names.size()];
+            for (int v = 0; v < values.length; v++)
+                values[v] = memory.get(names.get(v));
+            L location = locations.get(group[m]);
+            members.add(new Member<>(location, ranks.getOrDefault(location, -1), values));
+        }
+        return members;
+    }
+
+    private static double factorial(int n) {
+        double f = 1;
+        for (int i = 2; i <= n; i++)
+            f *= i;
+        return f;
+    }
+
+    /**
+     * One process of a group: its location and local values, ordered by
+     * location name, then location rank (for distinct locations with one
+     * name), then values (ints by value, anything else by its string).
+     */
+    private static class Member<L> implements Comparable<Member<L>> {
+        final L location;
+        /* the location's position in its group's location set; -1 before validate */
+        final int rank;
+        final Object[] values;
+
+        Member(L location, int rank, Object[] values) {
+            this.location = location;
+            this.rank = rank;
+            this.values = values;
+        }
+
+        @Override
+        public int compareTo(Member<L> o) {
+            int c = location.toString().compareTo(o.location.toString());
+            if (c == 0)
+                c = Integer.compare(rank, o.rank);
+            for (int v = 0; c == 0 && v < values.length; v++)
+                c = compareValues(values[v], o.values[v]);
+            return c;
+        }
+
+        private static int compareValues(Object a, Object b) {
+            if (a == null || b == null)
+                return a == null ? (b == null ? 0 : -1) : 1;
+            if (a instanceof Integer && b instanceof Integer)
+                return Integer.compare((Integer) a, (Integer) b);
+            return a.toString().compareTo(b.toString());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Member && location.equals(((Member<?>) o).location) && Arrays.equals(values, ((Member<?>) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * location.hashCode() + Arrays.hashCode(values);
+        }
+    }
+}
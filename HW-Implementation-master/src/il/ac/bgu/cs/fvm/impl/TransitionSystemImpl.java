@@ -6,7 +6,7 @@ import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
 
 import java.util.*;
 
-public class TransitionSystemImpl<STATE, ACTION, ATOMIC_PROPOSITION> implements TransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> {
+public class TransitionSystemImpl<STATE, ACTION, ATOMIC_PROPOSITION> implements IndexedTransitionSystem<STATE, ACTION, ATOMIC_PROPOSITION> {
     private String name;
     private Set<STATE> states;
     private Set<STATE> initialStates;
@@ -14,6 +14,10 @@ public class TransitionSystemImpl<STATE, ACTION, ATOMIC_PROPOSITION> implements
     private Set<ATOMIC_PROPOSITION> aps;
     private Set<Transition<STATE, ACTION>> transitions;
     private HashMap<STATE, Set<ATOMIC_PROPOSITION>> labelingFunction;
+    /* adjacency indexes, kept in sync with transitions (state -> action -> neighbours) */
+    private Map<STATE, Map<ACTION, Set<STATE>>> successors;
+    private Map<STATE, Map<ACTION, Set<STATE>>> predecessors;
+    private final List<TransitionSystemListener<STATE, ACTION>> listeners = new ArrayList<>();
 
     public TransitionSystemImpl() {
         this.name = null;
@@ -23,6 +27,8 @@ public class TransitionSystemImpl<STATE, ACTION, ATOMIC_PROPOSITION> implements
         this.aps = new HashSet<>();
         this.transitions = new HashSet<>();
         this.labelingFunction = new HashMap<>();
+        this.successors = new HashMap<>();
+        this.predecessors = new HashMap<>();
     }
 
     @Override
@@ -74,7 +80,8 @@ public class TransitionSystemImpl<STATE, ACTION, ATOMIC_PROPOSITION> implements
         if (!this.states.contains(state)) {
             throw new InvalidInitialStateException(state);
         }
-        else initialStates.add(state);
+        else if (initialStates.add(state))
+            listeners.forEach(l -> l.initialStateAdded(state));
     }
 
     @Override
@@ -88,7 +95,11 @@ public class TransitionSystemImpl<STATE, ACTION, ATOMIC_PROPOSITION> implements
         if (!states.contains(t.getFrom()) || !states.contains(t.getTo()) || !actions.contains(t.getAction())) {
             throw new InvalidTransitionException(t);
         }
-        else this.transitions.add(t);
+        else if (this.transitions.add(t)) {
+            index(successors, t.getFrom(), t.getAction(), t.getTo());
+            index(predecessors, t.getTo(), t.getAction(), t.getFrom());
+            listeners.forEach(l -> l.transitionAdded(t));
+        }
     }
 
     @Override
@@ -139,7 +150,48 @@ public class TransitionSystemImpl<STATE, ACTION, ATOMIC_PROPOSITION> implements
 
     @Override
     public Set<Transition<STATE, ACTION>> getTransitions() {
-        return this.transitions;
+        return Collections.unmodifiableSet(this.transitions);
+    }
+
+    @Override
+    public Set<STATE> getSuccessors(STATE s) {
+        return neighbours(successors, s);
+    }
+
+    @Override
+    public Set<STATE> getSuccessors(STATE s, ACTION a) {
+        return neighbours(successors, s, a);
+    }
+
+    @Override
+    public Set<STATE> getPredecessors(STATE s) {
+        return neighbours(predecessors, s);
+    }
+
+    @Override
+    public Set<STATE> getPredecessors(STATE s, ACTION a) {
+        return neighbours(predecessors, s, a);
+    }
+
+    @Override
+    public Set<Transition<STATE, ACTION>> getOutgoingTransitions(STATE s) {
+        Set<Transition<STATE, ACTION>> result = new HashSet<>();
+        successors.getOrDefault(s, Collections.emptyMap())
+                .forEach((a, tos) -> tos.forEach(to -> result.add(new Transition<>(s, a, to))));
+        return result;
+    }
+
+    @Override
+    public Map<ACTION, Set<STATE>> getSuccessorsByAction(STATE s) {
+        return Collections.unmodifiableMap(successors.getOrDefault(s, Collections.emptyMap()));
+    }
+
+    @Override
+    public Set<Transition<STATE, ACTION>> getIncomingTransitions(STATE s) {
+        Set<Transition<STATE, ACTION>> result = new HashSet<>();
+        predecessors.getOrDefault(s, Collections.emptyMap())
+                .forEach((a, froms) -> froms.forEach(from -> result.add(new Transition<>(from, a, s))));
+        return result;
     }
 
     @Override
@@ -160,7 +212,8 @@ public class TransitionSystemImpl<STATE, ACTION, ATOMIC_PROPOSITION> implements
 
     @Override
     public void removeInitialState(STATE state) {
-        this.initialStates.remove(state);
+        if (this.initialStates.remove(state))
+            listeners.forEach(l -> l.initialStateRemoved(state));
     }
 
     @Override
@@ -176,16 +229,59 @@ public class TransitionSystemImpl<STATE, ACTION, ATOMIC_PROPOSITION> implements
         if (!labelingFunction.get(state).isEmpty())
             throw new DeletionOfAttachedStateException(state, TransitionSystemPart.LABELING_FUNCTION);
 
-        for (Transition t : transitions) {
-            if (t.getTo().equals(state) || t.getFrom().equals(state))
-                throw new DeletionOfAttachedStateException(state, TransitionSystemPart.TRANSITIONS);
-        }
+        if (successors.containsKey(state) || predecessors.containsKey(state))
+            throw new DeletionOfAttachedStateException(state, TransitionSystemPart.TRANSITIONS);
+
         this.states.remove(state);
     }
 
     @Override
     public void removeTransition(Transition<STATE, ACTION> t) {
-        this.transitions.remove(t);
+        if (this.transitions.remove(t)) {
+            unindex(successors, t.getFrom(), t.getAction(), t.getTo());
+            unindex(predecessors, t.getTo(), t.getAction(), t.getFrom());
+            listeners.forEach(l -> l.transitionRemoved(t));
+        }
+    }
+
+    public void addListener(TransitionSystemListener<STATE, ACTION> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TransitionSystemListener<STATE, ACTION> listener) {
+        listeners.remove(listener);
+    }
+
+    private static <S, A> void index(Map<S, Map<A, Set<S>>> index, S s, A a, S other) {
+        index.computeIfAbsent(s, k -> new HashMap<>()).computeIfAbsent(a, k -> new HashSet<>()).add(other);
+    }
+
+    private static <S, A> void unindex(Map<S, Map<A, Set<S>>> index, S s, A a, S other) {
+        Map<A, Set<S>> byAction = index.get(s);
+        Set<S> others = byAction.get(a);
+        others.remove(other);
+        if (others.isEmpty()) {
+            byAction.remove(a);
+            if (byAction.isEmpty())
+                index.remove(s);
+        }
+    }
+
+    private static <S, A> Set<S> neighbours(Map<S, Map<A, Set<S>>> index, S s) {
+        Map<A, Set<S>> byAction = index.get(s);
+        if (byAction == null)
+            return Collections.emptySet();
+        if (byAction.size() == 1)
+            return Collections.unmodifiableSet(byAction.values().iterator().next());
+
+        Set<S> result = new HashSet<>();
+        byAction.values().forEach(result::addAll);
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static <S, A> Set<S> neighbours(Map<S, Map<A, Set<S>>> index, S s, A a) {
+        Set<S> result = index.getOrDefault(s, Collections.emptyMap()).get(a);
+        return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result);
     }
 
 }
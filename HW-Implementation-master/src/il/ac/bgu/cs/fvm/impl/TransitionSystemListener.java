@@ -0,0 +1,22 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+
+/**
+ * Notified by {@link TransitionSystemImpl} after a change to its structure,
+ * and only when the change took effect (e.g. not for adding a transition that
+ * is already there).
+ */
+public interface TransitionSystemListener<STATE, ACTION> {
+    default void initialStateAdded(STATE s) {
+    }
+
+    default void initialStateRemoved(STATE s) {
+    }
+
+    default void transitionAdded(Transition<STATE, ACTION> t) {
+    }
+
+    default void transitionRemoved(Transition<STATE, ACTION> t) {
+    }
+}
@@ -82,7 +82,7 @@ public class Utils {
     public static <A> boolean isItReallyPossibleAction(Map<String, Object> memoryMap, A action) {
         if (isChannelRead(action)) {
             String cName = getChannelName(action);
-            return memoryMap.containsKey(cName) && ((Vector)memoryMap.get(cName)).size() > 0;
+            return memoryMap.containsKey(cName) && ((List<?>) memoryMap.get(cName)).size() > 0;
         }
         else return true;
     }
@@ -0,0 +1,78 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns each variable and channel name a slot, the position of its value in
+ * a {@link Frame}. Slots are handed out in first-use order and never change,
+ * so code compiled against a layout stays valid as the layout grows.
+ * <p>
+ * Channels are unbounded unless {@link #bound bounded}; a bound must be set
+ * before code that writes to the channel is compiled against the layout.
+ * <p>
+ * Safe to share between threads: lookups do not lock, and only new names
+ * take a lock.
+ */
+public class VariableLayout {
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[0];
+    private final Map<String, Integer> capacities = new ConcurrentHashMap<>();
+
+    /**
+     * @return the slot of {@code name}, adding it if it has none yet.
+     */
+    public int slot(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? slot : add(name);
+    }
+
+    private synchronized int add(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null)
+            return slot;
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = name;
+        names = grown;
+        slots.put(name, names.length - 1);
+        return names.length - 1;
+    }
+
+    /**
+     * @return the slot of {@code name}, or -1 if it has none.
+     */
+    public int slotOf(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Lets the channel {@code name} hold at most {@code capacity} messages.
+     */
+    public void bound(String name, int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        capacities.put(name, capacity);
+    }
+
+    /**
+     * @return the capacity of the channel in {@code slot}; {@link IntQueue#UNBOUNDED} if it has no bound.
+     */
+    public int capacity(int slot) {
+        return capacities.getOrDefault(names[slot], IntQueue.UNBOUNDED);
+    }
+
+    public String name(int slot) {
+        return names[slot];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public String toString() {
+        return "VariableLayout" + Arrays.toString(names);
+    }
+}
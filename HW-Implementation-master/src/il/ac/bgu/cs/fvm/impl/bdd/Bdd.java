@@ -0,0 +1,390 @@
+package il.ac.bgu.cs.fvm.impl.bdd;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A reduced ordered binary decision diagram manager. Nodes are ints: {@link #FALSE}
+ * and {@link #TRUE} are the terminals, and every other node is a (variable, low,
+ * high) triple stored once in a unique table, so two nodes represent the same
+ * function iff they are the same int. Variables are {@code 0..varCount()-1}
+ * and are ordered by number.
+ * <p>
+ * Nodes are never freed; a manager is meant to live as long as one analysis.
+ */
+public class Bdd {
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    private static final int AND = 0, OR = 1, XOR = 2, BIIMP = 3;
+    private static final int CACHE_BITS = 18;
+
+    private final int varCount;
+    private int[] vars = new int[1024];
+    private int[] lows = new int[1024];
+    private int[] highs = new int[1024];
+    private int size;
+    private int[] table = new int[2048]; // node id, 0 marks an empty slot
+
+    /* direct-mapped cache for apply */
+    private final int[] cacheOp = new int[1 << CACHE_BITS];
+    private final int[] cacheF = new int[1 << CACHE_BITS];
+    private final int[] cacheG = new int[1 << CACHE_BITS];
+    private final int[] cacheResult = new int[1 << CACHE_BITS];
+
+    public Bdd(int varCount) {
+        this.varCount = varCount;
+        vars[FALSE] = vars[TRUE] = varCount;
+        size = 2;
+        Arrays.fill(cacheOp, -1);
+    }
+
+    public int varCount() {
+        return varCount;
+    }
+
+    /**
+     * @return the number of nodes allocated so far, terminals included.
+     */
+    public int nodeCount() {
+        return size;
+    }
+
+    //region nodes
+
+    public int var(int v) {
+        return mk(v, FALSE, TRUE);
+    }
+
+    public int nvar(int v) {
+        return mk(v, TRUE, FALSE);
+    }
+
+    public int varOf(int f) {
+        return vars[f];
+    }
+
+    public int low(int f) {
+        return lows[f];
+    }
+
+    public int high(int f) {
+        return highs[f];
+    }
+
+    private int mk(int v, int lo, int hi) {
+        if (lo == hi)
+            return lo;
+        int mask = table.length - 1;
+        for (int i = hash(v, lo, hi) & mask; ; i = (i + 1) & mask) {
+            int id = table[i];
+            if (id == 0) {
+                id = append(v, lo, hi);
+                table[i] = id;
+                if (size * 2 > table.length)
+                    rehash();
+                return id;
+            }
+            if (vars[id] == v && lows[id] == lo && highs[id] == hi)
+                return id;
+        }
+    }
+
+    private int append(int v, int lo, int hi) {
+        if (size == vars.length) {
+            vars = Arrays.copyOf(vars, size * 2);
+            lows = Arrays.copyOf(lows, size * 2);
+            highs = Arrays.copyOf(highs, size * 2);
+        }
+        vars[size] = v;
+        lows[size] = lo;
+        highs[size] = hi;
+        return size++;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 2; id < size; id++) {
+            int i = hash(vars[id], lows[id], highs[id]) & mask;
+            while (table[i] != 0)
+                i = (i + 1) & mask;
+            table[i] = id;
+        }
+    }
+
+    private static int hash(int v, int lo, int hi) {
+        int h = v * 0x9E3779B1 + lo * 0x85EBCA6B + hi * 0xC2B2AE35;
+        return h ^ (h >>> 15);
+    }
+    //endregion
+
+    //region boolean operations
+
+    public int not(int f) {
+        return apply(XOR, f, TRUE);
+    }
+
+    public int and(int f, int g) {
+        return apply(AND, f, g);
+    }
+
+    public int or(int f, int g) {
+        return apply(OR, f, g);
+    }
+
+    public int xor(int f, int g) {
+        return apply(XOR, f, g);
+    }
+
+    public int biimp(int f, int g) {
+        return apply(BIIMP, f, g);
+    }
+
+    public int imp(int f, int g) {
+        return or(not(f), g);
+    }
+
+    public int ite(int f, int g, int h) {
+        return or(and(f, g), and(not(f), h));
+    }
+
+    private int apply(int op, int f, int g) {
+        switch (op) {
+            case AND:
+                if (f == FALSE || g == FALSE) return FALSE;
+                if (f == TRUE) return g;
+                if (g == TRUE || f == g) return f;
+                break;
+            case OR:
+                if (f == TRUE || g == TRUE) return TRUE;
+                if (f == FALSE) return g;
+                if (g == FALSE || f == g) return f;
+                break;
+            case XOR:
+                if (f == g) return FALSE;
+                if (f == FALSE) return g;
+                if (g == FALSE) return f;
+                break;
+            case BIIMP:
+                if (f == g) return TRUE;
+                if (f == TRUE) return g;
+                if (g == TRUE) return f;
+                break;
+        }
+        if (f > g) { // all four operations commute
+            int t = f;
+            f = g;
+            g = t;
+        }
+
+        int slot = (hash(op, f, g) >>> (32 - CACHE_BITS));
+        if (cacheOp[slot] == op && cacheF[slot] == f && cacheG[slot] == g)
+            return cacheResult[slot];
+
+        int v = Math.min(vars[f], vars[g]);
+        int lo = apply(op, vars[f] == v ? lows[f] : f, vars[g] == v ? lows[g] : g);
+        int hi = apply(op, vars[f] == v ? highs[f] : f, vars[g] == v ? highs[g] : g);
+        int result = mk(v, lo, hi);
+
+        cacheOp[slot] = op;
+        cacheF[slot] = f;
+        cacheG[slot] = g;
+        cacheResult[slot] = result;
+        return result;
+    }
+
+    /**
+     * The conjunction of the given literals: {@code vars[i]} if {@code values[i]},
+     * its negation otherwise.
+     */
+    public int cube(int[] vars, boolean[] values) {
+        int f = TRUE;
+        for (int i = vars.length - 1; i >= 0; i--)
+            f = and(values[i] ? var(vars[i]) : nvar(vars[i]), f);
+        return f;
+    }
+    //endregion
+
+    //region quantification and substitution
+
+    /**
+     * @param quantified {@code quantified[v]} iff variable {@code v} is quantified.
+     */
+    public int exists(int f, boolean[] quantified) {
+        return exists(f, quantified, new HashMap<>());
+    }
+
+    private int exists(int f, boolean[] quantified, Map<Integer, Integer> memo) {
+        if (f <= TRUE)
+            return f;
+        Integer known = memo.get(f);
+        if (known != null)
+            return known;
+        int lo = exists(lows[f], quantified, memo);
+        int result;
+        if (quantified[vars[f]])
+            result = lo == TRUE ? TRUE : or(lo, exists(highs[f], quantified, memo));
+        else
+            result = mk(vars[f], lo, exists(highs[f], quantified, memo));
+        memo.put(f, result);
+        return result;
+    }
+
+    /**
+     * {@code exists(and(f, g), quantified)} without building the conjunction,
+     * which is usually much larger than the result (the relational product).
+     */
+    public int relProd(int f, int g, boolean[] quantified) {
+        return relProd(f, g, quantified, new HashMap<>(), new HashMap<>());
+    }
+
+    private int relProd(int f, int g, boolean[] quantified, Map<Long, Integer> memo, Map<Integer, Integer> existsMemo) {
+        if (f == FALSE || g == FALSE)
+            return FALSE;
+        if (f == TRUE && g == TRUE)
+            return TRUE;
+        if (f == TRUE)
+            return exists(g, quantified, existsMemo);
+        if (g == TRUE)
+            return exists(f, quantified, existsMemo);
+        if (f > g) {
+            int t = f;
+            f = g;
+            g = t;
+        }
+        long key = ((long) f << 32) | g;
+        Integer known = memo.get(key);
+        if (known != null)
+            return known;
+
+        int v = Math.min(vars[f], vars[g]);
+        int f0 = vars[f] == v ? lows[f] : f, f1 = vars[f] == v ? highs[f] : f;
+        int g0 = vars[g] == v ? lows[g] : g, g1 = vars[g] == v ? highs[g] : g;
+        int lo = relProd(f0, g0, quantified, memo, existsMemo);
+        int result;
+        if (quantified[v])
+            result = lo == TRUE ? TRUE : or(lo, relProd(f1, g1, quantified, memo, existsMemo));
+        else
+            result = mk(v, lo, relProd(f1, g1, quantified, memo, existsMemo));
+        memo.put(key, result);
+        return result;
+    }
+
+    /**
+     * Rename variables: every {@code v} in {@code f} becomes {@code renaming[v]}.
+     * The renaming need not preserve the variable order.
+     */
+    public int replace(int f, int[] renaming) {
+        return replace(f, renaming, new HashMap<>());
+    }
+
+    private int replace(int f, int[] renaming, Map<Integer, Integer> memo) {
+        if (f <= TRUE)
+            return f;
+        Integer known = memo.get(f);
+        if (known != null)
+            return known;
+        int result = ite(var(renaming[vars[f]]), replace(highs[f], renaming, memo), replace(lows[f], renaming, memo));
+        memo.put(f, result);
+        return result;
+    }
+    //endregion
+
+    //region assignments
+
+    /**
+     * @param values the value of every variable, by variable number.
+     */
+    public boolean eval(int f, boolean[] values) {
+        while (f > TRUE)
+            f = values[vars[f]] ? highs[f] : lows[f];
+        return f == TRUE;
+    }
+
+    /**
+     * The number of assignments to {@code support} that satisfy {@code f}, which
+     * must not depend on variables outside {@code support}.
+     *
+     * @param support variables in increasing order.
+     */
+    public double satCount(int f, int[] support) {
+        int[] position = positions(support);
+        return Math.scalb(satCount(f, support, position, new HashMap<>()), position(f, position, support.length));
+    }
+
+    /* assignments to support[position(f)..] that satisfy f */
+    private double satCount(int f, int[] support, int[] position, Map<Integer, Double> memo) {
+        if (f <= TRUE)
+            return f;
+        Double known = memo.get(f);
+        if (known != null)
+            return known;
+        int at = position(f, position, support.length);
+        int lo = lows[f], hi = highs[f];
+        double result = Math.scalb(satCount(lo, support, position, memo), position(lo, position, support.length) - at - 1)
+                + Math.scalb(satCount(hi, support, position, memo), position(hi, position, support.length) - at - 1);
+        memo.put(f, result);
+        return result;
+    }
+
+    /**
+     * Calls {@code consumer} with every assignment to {@code support} that
+     * satisfies {@code f} (indexed like {@code support}). The array is reused
+     * between calls.
+     */
+    public void forEachSat(int f, int[] support, Consumer<boolean[]> consumer) {
+        forEachSat(f, support, 0, new boolean[support.length], consumer);
+    }
+
+    private void forEachSat(int f, int[] support, int at, boolean[] assignment, Consumer<boolean[]> consumer) {
+        if (f == FALSE)
+            return;
+        if (at == support.length) {
+            consumer.accept(assignment);
+            return;
+        }
+        boolean decided = f > TRUE && vars[f] == support[at];
+        assignment[at] = false;
+        forEachSat(decided ? lows[f] : f, support, at + 1, assignment, consumer);
+        assignment[at] = true;
+        forEachSat(decided ? highs[f] : f, support, at + 1, assignment, consumer);
+    }
+
+    /**
+     * @return one assignment to {@code support} that satisfies {@code f}
+     * (indexed like {@code support}), or {@code null} if {@code f} is {@link #FALSE}.
+     */
+    public boolean[] anySat(int f, int[] support) {
+        if (f == FALSE)
+            return null;
+        int[] position = positions(support);
+        boolean[] assignment = new boolean[support.length];
+        while (f > TRUE) {
+            boolean high = lows[f] == FALSE;
+            assignment[position[vars[f]]] = high;
+            f = high ? highs[f] : lows[f];
+        }
+        return assignment;
+    }
+
+    private int[] positions(int[] support) {
+        int[] position = new int[varCount];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < support.length; i++)
+            position[support[i]] = i;
+        return position;
+    }
+
+    private int position(int f, int[] position, int terminalPosition) {
+        if (f <= TRUE)
+            return terminalPosition;
+        int at = position[vars[f]];
+        if (at < 0)
+            throw new IllegalArgumentException("variable " + vars[f] + " is outside the support");
+        return at;
+    }
+    //endregion
+}